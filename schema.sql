@@ -26,6 +26,7 @@ CREATE TABLE IF NOT EXISTS users (
     email VARCHAR(255) NOT NULL UNIQUE,
     password VARCHAR(255) NOT NULL,
     role VARCHAR(20) NOT NULL DEFAULT 'USER',
+    token_version BIGINT NOT NULL DEFAULT 0,
     created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
     updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
     INDEX idx_users_email (email)
@@ -43,10 +44,11 @@ CREATE TABLE IF NOT EXISTS trips (
     total_expenses DECIMAL(10, 2) DEFAULT 0.00,
     status VARCHAR(20) NOT NULL DEFAULT 'PLANNING',
     user_id BIGINT NOT NULL,
+    version BIGINT NOT NULL DEFAULT 0,
     created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
     updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
     FOREIGN KEY (user_id) REFERENCES users(id) ON DELETE CASCADE,
-    INDEX idx_trips_user_id (user_id),
+    INDEX idx_trips_user_start (user_id, start_date, id),
     INDEX idx_trips_dates (start_date, end_date),
     INDEX idx_trips_status (status),
     CONSTRAINT chk_trip_dates CHECK (end_date >= start_date)
@@ -64,7 +66,7 @@ CREATE TABLE IF NOT EXISTS expenses (
     created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
     updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
     FOREIGN KEY (trip_id) REFERENCES trips(id) ON DELETE CASCADE,
-    INDEX idx_expenses_trip_id (trip_id),
+    INDEX idx_expenses_trip_date (trip_id, expense_date, id),
     INDEX idx_expenses_category (category),
     INDEX idx_expenses_date (expense_date),
     CONSTRAINT chk_amount_positive CHECK (amount > 0)
@@ -74,16 +76,108 @@ CREATE TABLE IF NOT EXISTS expenses (
 CREATE TABLE IF NOT EXISTS ai_recommendations (
     id BIGINT PRIMARY KEY AUTO_INCREMENT,
     type VARCHAR(50) NOT NULL DEFAULT 'TRAVEL',
-    content TEXT NOT NULL,
+    content_compressed MEDIUMBLOB NOT NULL,
+    content_preview VARCHAR(300) NOT NULL,
     destination VARCHAR(255),
     budget_range VARCHAR(100),
+    preferences VARCHAR(1000),
+    model_tier VARCHAR(20),
+    generation_ms BIGINT,
+    reusable BOOLEAN NOT NULL DEFAULT TRUE,
     user_id BIGINT NOT NULL,
     created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
     FOREIGN KEY (user_id) REFERENCES users(id) ON DELETE CASCADE,
-    INDEX idx_recommendations_user_id (user_id),
+    INDEX idx_recommendations_user_created (user_id, created_at, id),
     INDEX idx_recommendations_type (type),
-    INDEX idx_recommendations_destination (destination),
-    FULLTEXT INDEX idx_recommendations_content (content)
+    INDEX idx_recommendations_destination (destination)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
+
+-- Upgrading existing tables to the keyset pagination indexes (each also serves its foreign key):
+-- ALTER TABLE trips ADD INDEX idx_trips_user_start (user_id, start_date, id), DROP INDEX idx_trips_user_id;
+-- ALTER TABLE expenses ADD INDEX idx_expenses_trip_date (trip_id, expense_date, id), DROP INDEX idx_expenses_trip_id;
+-- ALTER TABLE ai_recommendations ADD INDEX idx_recommendations_user_created (user_id, created_at, id),
+--     DROP INDEX idx_recommendations_user_id;
+
+-- Upgrading an existing ai_recommendations table (content is stored in COMPRESS() format):
+-- ALTER TABLE ai_recommendations ADD COLUMN content_compressed MEDIUMBLOB, ADD COLUMN content_preview VARCHAR(300);
+-- UPDATE ai_recommendations SET content_compressed = COMPRESS(content), content_preview = LEFT(content, 300);
+-- ALTER TABLE ai_recommendations DROP INDEX idx_recommendations_content, DROP COLUMN content,
+--     MODIFY content_compressed MEDIUMBLOB NOT NULL, MODIFY content_preview VARCHAR(300) NOT NULL;
+-- ALTER TABLE ai_recommendations ADD COLUMN preferences VARCHAR(1000) AFTER budget_range;
+-- ALTER TABLE ai_recommendations ADD COLUMN reusable BOOLEAN NOT NULL DEFAULT TRUE AFTER generation_ms;
+-- UPDATE ai_recommendations SET reusable = FALSE
+--     WHERE model_tier = 'FALLBACK' OR content_preview = 'Unable to generate recommendation at this time.';
+
+-- Recommendation jobs table (queue for asynchronous generation)
+CREATE TABLE IF NOT EXISTS recommendation_jobs (
+    id BIGINT PRIMARY KEY AUTO_INCREMENT,
+    user_id BIGINT NOT NULL,
+    destination VARCHAR(255) NOT NULL,
+    budget_range VARCHAR(100),
+    preferences VARCHAR(1000),
+    status VARCHAR(20) NOT NULL DEFAULT 'PENDING',
+    attempts INT NOT NULL DEFAULT 0,
+    next_attempt_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    locked_by VARCHAR(255),
+    locked_at TIMESTAMP NULL,
+    last_error VARCHAR(1000),
+    recommendation_id BIGINT,
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+    FOREIGN KEY (user_id) REFERENCES users(id) ON DELETE CASCADE,
+    FOREIGN KEY (recommendation_id) REFERENCES ai_recommendations(id) ON DELETE SET NULL,
+    INDEX idx_jobs_claim (status, next_attempt_at),
+    INDEX idx_jobs_user_id (user_id)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
+
+-- AI usage per user and day (flushed in batches from in-memory counters)
+CREATE TABLE IF NOT EXISTS ai_usage (
+    user_id BIGINT NOT NULL,
+    usage_date DATE NOT NULL,
+    requests BIGINT NOT NULL DEFAULT 0,
+    tokens BIGINT NOT NULL DEFAULT 0,
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+    PRIMARY KEY (user_id, usage_date),
+    FOREIGN KEY (user_id) REFERENCES users(id) ON DELETE CASCADE
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
+
+-- Spend rollups per user, in minor units (paise), kept by the application on every
+-- expense and trip write so analytics never aggregate the expenses table
+CREATE TABLE IF NOT EXISTS expense_category_rollup (
+    user_id BIGINT NOT NULL,
+    category VARCHAR(100) NOT NULL,
+    total_minor BIGINT NOT NULL DEFAULT 0,
+    expense_count BIGINT NOT NULL DEFAULT 0,
+    PRIMARY KEY (user_id, category),
+    FOREIGN KEY (user_id) REFERENCES users(id) ON DELETE CASCADE
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
+
+CREATE TABLE IF NOT EXISTS expense_month_rollup (
+    user_id BIGINT NOT NULL,
+    month DATE NOT NULL,
+    total_minor BIGINT NOT NULL DEFAULT 0,
+    expense_count BIGINT NOT NULL DEFAULT 0,
+    PRIMARY KEY (user_id, month),
+    FOREIGN KEY (user_id) REFERENCES users(id) ON DELETE CASCADE
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
+
+CREATE TABLE IF NOT EXISTS trip_status_rollup (
+    user_id BIGINT NOT NULL,
+    status VARCHAR(20) NOT NULL,
+    trip_count BIGINT NOT NULL DEFAULT 0,
+    total_minor BIGINT NOT NULL DEFAULT 0,
+    PRIMARY KEY (user_id, status),
+    FOREIGN KEY (user_id) REFERENCES users(id) ON DELETE CASCADE
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
+
+CREATE TABLE IF NOT EXISTS destination_rollup (
+    user_id BIGINT NOT NULL,
+    destination VARCHAR(255) NOT NULL,
+    trip_count BIGINT NOT NULL DEFAULT 0,
+    total_minor BIGINT NOT NULL DEFAULT 0,
+    PRIMARY KEY (user_id, destination),
+    INDEX idx_destination_rollup_total (user_id, total_minor),
+    FOREIGN KEY (user_id) REFERENCES users(id) ON DELETE CASCADE
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
 
 -- =====================================================
@@ -191,22 +285,27 @@ INSERT INTO expenses (title, description, amount, expense_date, category, trip_i
 -- =====================================================
 
 -- AI Recommendations for test user (user_id = 2)
-INSERT INTO ai_recommendations (type, content, destination, budget_range, user_id) VALUES
-('TRAVEL', 'Based on your interest in Bali with a moderate budget, we recommend visiting during April-October for best weather. Top attractions include Uluwatu Temple, Ubud Monkey Forest, and Seminyak beaches. Estimated daily budget: $100-150. Consider staying in Seminyak for nightlife or Ubud for cultural experience.', 'Bali, Indonesia', 'moderate', 2);
+SET @content = 'Based on your interest in Bali with a moderate budget, we recommend visiting during April-October for best weather. Top attractions include Uluwatu Temple, Ubud Monkey Forest, and Seminyak beaches. Estimated daily budget: $100-150. Consider staying in Seminyak for nightlife or Ubud for cultural experience.';
+INSERT INTO ai_recommendations (type, content_compressed, content_preview, destination, budget_range, user_id) VALUES
+('TRAVEL', COMPRESS(@content), LEFT(@content, 300), 'Bali, Indonesia', 'moderate', 2);
 
-INSERT INTO ai_recommendations (type, content, destination, budget_range, user_id) VALUES
-('TRAVEL', 'For your Paris trip with luxury budget, we recommend staying in Le Marais district. Must-visit: Eiffel Tower, Louvre Museum, Notre-Dame. Book restaurant reservations in advance. Consider a Seine river cruise at sunset. Estimated daily budget: $300-400.', 'Paris, France', 'luxury', 2);
+SET @content = 'For your Paris trip with luxury budget, we recommend staying in Le Marais district. Must-visit: Eiffel Tower, Louvre Museum, Notre-Dame. Book restaurant reservations in advance. Consider a Seine river cruise at sunset. Estimated daily budget: $300-400.';
+INSERT INTO ai_recommendations (type, content_compressed, content_preview, destination, budget_range, user_id) VALUES
+('TRAVEL', COMPRESS(@content), LEFT(@content, 300), 'Paris, France', 'luxury', 2);
 
-INSERT INTO ai_recommendations (type, content, destination, budget_range, user_id) VALUES
-('TRAVEL', 'Swiss Alps on a moderate budget: Visit Interlaken and Grindelwald. Take the Jungfrau railway, try hiking in summer or skiing in winter. Stay in hostels or budget hotels to save money. Swiss Travel Pass offers good value. Estimated daily budget: $150-200.', 'Swiss Alps', 'moderate', 2);
+SET @content = 'Swiss Alps on a moderate budget: Visit Interlaken and Grindelwald. Take the Jungfrau railway, try hiking in summer or skiing in winter. Stay in hostels or budget hotels to save money. Swiss Travel Pass offers good value. Estimated daily budget: $150-200.';
+INSERT INTO ai_recommendations (type, content_compressed, content_preview, destination, budget_range, user_id) VALUES
+('TRAVEL', COMPRESS(@content), LEFT(@content, 300), 'Swiss Alps', 'moderate', 2);
 
 -- AI Recommendations for John Doe (user_id = 3)
-INSERT INTO ai_recommendations (type, content, destination, budget_range, user_id) VALUES
-('TRAVEL', 'Tokyo travel tips: Best time to visit is March-April for cherry blossoms or October-November for autumn colors. Stay in Shinjuku or Shibuya. Try local cuisine at Tsukiji outer market. Get a Suica card for easy transport. Estimated daily budget: $150-200.', 'Tokyo, Japan', 'moderate', 3);
+SET @content = 'Tokyo travel tips: Best time to visit is March-April for cherry blossoms or October-November for autumn colors. Stay in Shinjuku or Shibuya. Try local cuisine at Tsukiji outer market. Get a Suica card for easy transport. Estimated daily budget: $150-200.';
+INSERT INTO ai_recommendations (type, content_compressed, content_preview, destination, budget_range, user_id) VALUES
+('TRAVEL', COMPRESS(@content), LEFT(@content, 300), 'Tokyo, Japan', 'moderate', 3);
 
 -- AI Recommendations for Jane Smith (user_id = 4)
-INSERT INTO ai_recommendations (type, content, destination, budget_range, user_id) VALUES
-('TRAVEL', 'Maldives honeymoon guide: Best luxury resorts include Soneva Jani and St. Regis. Visit during November-April for best weather. Book overwater villa for ultimate experience. All-inclusive packages recommended. Estimated daily budget: $500-800.', 'Maldives', 'luxury', 4);
+SET @content = 'Maldives honeymoon guide: Best luxury resorts include Soneva Jani and St. Regis. Visit during November-April for best weather. Book overwater villa for ultimate experience. All-inclusive packages recommended. Estimated daily budget: $500-800.';
+INSERT INTO ai_recommendations (type, content_compressed, content_preview, destination, budget_range, user_id) VALUES
+('TRAVEL', COMPRESS(@content), LEFT(@content, 300), 'Maldives', 'luxury', 4);
 
 -- =====================================================
 -- 6. UPDATE TRIP TOTAL EXPENSES (Run after inserting expenses)
@@ -221,54 +320,44 @@ SET t.total_expenses = (
 );
 
 -- =====================================================
--- 7. CREATE TRIGGERS FOR AUTOMATIC UPDATES
+-- 7. TRIP TOTALS AND SPEND ROLLUPS
 -- =====================================================
 
-DELIMITER //
-
--- Trigger to update trip total expenses when expense is inserted
-CREATE TRIGGER after_expense_insert
-AFTER INSERT ON expenses
-FOR EACH ROW
-BEGIN
-    UPDATE trips 
-    SET total_expenses = (
-        SELECT COALESCE(SUM(amount), 0) 
-        FROM expenses 
-        WHERE trip_id = NEW.trip_id
-    )
-    WHERE id = NEW.trip_id;
-END//
-
--- Trigger to update trip total expenses when expense is updated
-CREATE TRIGGER after_expense_update
-AFTER UPDATE ON expenses
-FOR EACH ROW
-BEGIN
-    UPDATE trips 
-    SET total_expenses = (
-        SELECT COALESCE(SUM(amount), 0) 
-        FROM expenses 
-        WHERE trip_id = NEW.trip_id
-    )
-    WHERE id = NEW.trip_id;
-END//
-
--- Trigger to update trip total expenses when expense is deleted
-CREATE TRIGGER after_expense_delete
-AFTER DELETE ON expenses
-FOR EACH ROW
-BEGIN
-    UPDATE trips 
-    SET total_expenses = (
-        SELECT COALESCE(SUM(amount), 0) 
-        FROM expenses 
-        WHERE trip_id = OLD.trip_id
-    )
-    WHERE id = OLD.trip_id;
-END//
-
-DELIMITER ;
+-- trips.total_expenses is kept by the application with one atomic
+-- "total_expenses = total_expenses + delta" per expense write (and a nightly
+-- reconciler), not by triggers, so no write aggregates a trip's expenses.
+-- Upgrading an existing database:
+-- DROP TRIGGER IF EXISTS after_expense_insert;
+-- DROP TRIGGER IF EXISTS after_expense_update;
+-- DROP TRIGGER IF EXISTS after_expense_delete;
+-- ALTER TABLE trips ADD COLUMN version BIGINT NOT NULL DEFAULT 0 AFTER user_id;
+
+-- The spend rollups start from the sample data; after that the application
+-- adds to them. Upgrading an existing database: create the four rollup tables
+-- above, then call POST /api/admin/analytics/rebuild (all users, or ?userId=).
+INSERT INTO expense_category_rollup (user_id, category, total_minor, expense_count)
+SELECT t.user_id, e.category, SUM(ROUND(e.amount * 100)), COUNT(*)
+FROM expenses e
+JOIN trips t ON e.trip_id = t.id
+GROUP BY t.user_id, e.category;
+
+INSERT INTO expense_month_rollup (user_id, month, total_minor, expense_count)
+SELECT t.user_id, DATE_FORMAT(e.expense_date, '%Y-%m-01') AS month, SUM(ROUND(e.amount * 100)), COUNT(*)
+FROM expenses e
+JOIN trips t ON e.trip_id = t.id
+GROUP BY t.user_id, month;
+
+INSERT INTO trip_status_rollup (user_id, status, trip_count, total_minor)
+SELECT t.user_id, t.status, COUNT(DISTINCT t.id), COALESCE(SUM(ROUND(e.amount * 100)), 0)
+FROM trips t
+LEFT JOIN expenses e ON e.trip_id = t.id
+GROUP BY t.user_id, t.status;
+
+INSERT INTO destination_rollup (user_id, destination, trip_count, total_minor)
+SELECT t.user_id, t.destination, COUNT(DISTINCT t.id), COALESCE(SUM(ROUND(e.amount * 100)), 0)
+FROM trips t
+LEFT JOIN expenses e ON e.trip_id = t.id
+GROUP BY t.user_id, t.destination;
 
 -- =====================================================
 -- 8. CREATE VIEWS FOR COMMON QUERIES
@@ -363,6 +452,10 @@ ORDER BY t.start_date ASC;
 
 -- Delete all data (but keep tables)
 -- SET FOREIGN_KEY_CHECKS = 0;
+-- TRUNCATE TABLE expense_category_rollup;
+-- TRUNCATE TABLE expense_month_rollup;
+-- TRUNCATE TABLE trip_status_rollup;
+-- TRUNCATE TABLE destination_rollup;
 -- TRUNCATE TABLE expenses;
 -- TRUNCATE TABLE ai_recommendations;
 -- TRUNCATE TABLE trips;
@@ -0,0 +1,187 @@
+package com.ht.ai;
+
+
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.ht.exception.AIUnavailableException;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Caps concurrent Gemini calls at a limit that follows observed round-trip
+ * times (TCP Vegas style). The lowest RTT seen approximates an unloaded
+ * Gemini. From it the number of calls queued upstream is estimated as
+ * {@code limit * (1 - minRtt / rtt)}. A queue under about log10(limit) raises
+ * the limit, and a queue above about 6*log10(limit) lowers it. The limit thus
+ * settles just above the concurrency Gemini can serve without queueing.
+ * Failed calls cut the limit by 10%. Calls over the limit fail immediately
+ * with {@link AIUnavailableException} and go to the fallback.
+ *
+ * The minimum RTT is forgotten every so often so that a lasting slowdown of
+ * Gemini is picked up. Streams hold a slot but give no RTT sample, and neither
+ * do cancelled calls (hedge losers).
+ */
+@Component
+public class AdaptiveConcurrencyLimiter implements MetricsSource {
+
+    private static final int PROBE_MULTIPLIER = 30;
+
+    private final int minLimit;
+    private final int maxLimit;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private volatile int limit;
+
+    // Guarded by this
+    private long minRttNanos;
+    private long samplesUntilProbe;
+
+    private final LongAdder admitted = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder drops = new LongAdder();
+
+    public AdaptiveConcurrencyLimiter(
+            @Value("${gemini.limiter.initial-limit:20}") int initialLimit,
+            @Value("${gemini.limiter.min-limit:2}") int minLimit,
+            @Value("${gemini.limiter.max-limit:200}") int maxLimit
+    ) {
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.limit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+        this.samplesUntilProbe = nextProbe(limit);
+    }
+
+    public <T> Mono<T> protect(Mono<T> call) {
+        return Mono.defer(() -> {
+            if (!tryAcquire()) {
+                return Mono.error(new AIUnavailableException("Gemini concurrency limit reached"));
+            }
+            long start = System.nanoTime();
+            int inFlightAtStart = inFlight.get();
+            AtomicBoolean released = new AtomicBoolean();
+            return call
+                    .doOnSuccess(value -> {
+                        if (released.compareAndSet(false, true)) {
+                            release();
+                            onSample(System.nanoTime() - start, inFlightAtStart);
+                        }
+                    })
+                    .doOnError(e -> {
+                        if (released.compareAndSet(false, true)) {
+                            release();
+                            onError(e);
+                        }
+                    })
+                    .doOnCancel(() -> {
+                        if (released.compareAndSet(false, true)) {
+                            release();
+                        }
+                    });
+        });
+    }
+
+    public <T> Flux<T> protect(Flux<T> call) {
+        return Flux.defer(() -> {
+            if (!tryAcquire()) {
+                return Flux.error(new AIUnavailableException("Gemini concurrency limit reached"));
+            }
+            return call
+                    .doOnError(this::onError)
+                    .doFinally(signal -> release());
+        });
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    private boolean tryAcquire() {
+        int current;
+        do {
+            current = inFlight.get();
+            if (current >= limit) {
+                rejected.increment();
+                return false;
+            }
+        } while (!inFlight.compareAndSet(current, current + 1));
+        admitted.increment();
+        return true;
+    }
+
+    private void release() {
+        inFlight.decrementAndGet();
+    }
+
+    private void onError(Throwable e) {
+        // Calls the breaker refused never reached Gemini and say nothing about its capacity
+        if (e instanceof AIUnavailableException) {
+            return;
+        }
+        drops.increment();
+        synchronized (this) {
+            limit = clamp((int) (limit * 0.9));
+        }
+    }
+
+    synchronized void onSample(long rttNanos, int inFlightAtStart) {
+        if (--samplesUntilProbe <= 0) {
+            minRttNanos = 0;
+            samplesUntilProbe = nextProbe(limit);
+        }
+        if (minRttNanos == 0 || rttNanos < minRttNanos) {
+            minRttNanos = rttNanos;
+            return;
+        }
+        // Far below the limit the RTT says nothing about where the limit should be
+        if (inFlightAtStart * 2 < limit) {
+            return;
+        }
+
+        int current = limit;
+        double step = Math.max(1, Math.log10(current));
+        int queued = (int) Math.ceil(current * (1 - (double) minRttNanos / rttNanos));
+        if (queued <= step) {
+            limit = clamp((int) (current + 6 * step));
+        } else if (queued < 3 * step) {
+            limit = clamp((int) (current + step));
+        } else if (queued > 6 * step) {
+            limit = clamp((int) (current - step));
+        }
+    }
+
+    private int clamp(int value) {
+        return Math.max(minLimit, Math.min(maxLimit, value));
+    }
+
+    private static long nextProbe(int limit) {
+        return PROBE_MULTIPLIER * (long) limit + ThreadLocalRandom.current().nextInt(PROBE_MULTIPLIER * limit + 1);
+    }
+
+    @Override
+    public String metricsName() {
+        return "concurrencyLimiter";
+    }
+
+    @Override
+    public Map<String, Number> metrics() {
+        return Map.of(
+                "limit", limit,
+                "inFlight", inFlight.get(),
+                "admitted", admitted.sum(),
+                "rejected", rejected.sum(),
+                "drops", drops.sum()
+        );
+    }
+}
@@ -0,0 +1,172 @@
+package com.ht.ai;
+
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.ht.exception.AIUnavailableException;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Opens after a run of consecutive Gemini failures and rejects calls straight
+ * away until the open period has passed; then a single trial call decides
+ * whether to close again or stay open. Only outcomes of calls admitted since
+ * the breaker last closed count: a call still in flight from before it
+ * opened can neither close it nor push it towards opening again.
+ */
+@Component
+public class CircuitBreaker implements MetricsSource {
+
+    public enum State { CLOSED, OPEN, HALF_OPEN }
+
+    private final int failureThreshold;
+    private final long openMillis;
+
+    private final AtomicReference<State> state = new AtomicReference<>(State.CLOSED);
+    private final AtomicInteger consecutiveFailures = new AtomicInteger();
+    private final AtomicBoolean trialInFlight = new AtomicBoolean();
+    // Bumped every time the breaker opens, so outcomes of earlier calls can be told apart
+    private final AtomicLong generation = new AtomicLong();
+    private volatile long openedAt;
+
+    private final LongAdder successes = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder timesOpened = new LongAdder();
+
+    public CircuitBreaker(
+            @Value("${gemini.breaker.failure-threshold:5}") int failureThreshold,
+            @Value("${gemini.breaker.open-ms:30000}") long openMillis
+    ) {
+        this.failureThreshold = failureThreshold;
+        this.openMillis = openMillis;
+    }
+
+    public <T> Mono<T> protect(Mono<T> call) {
+        return Mono.defer(() -> {
+            Admission admission = tryAcquire();
+            if (admission == null) {
+                return Mono.error(new AIUnavailableException("Gemini circuit breaker is open"));
+            }
+            return call
+                    .doOnSuccess(value -> onSuccess(admission))
+                    .doOnError(e -> onFailure(admission))
+                    .doOnCancel(() -> onCancel(admission));
+        });
+    }
+
+    public <T> Flux<T> protect(Flux<T> call) {
+        return Flux.defer(() -> {
+            Admission admission = tryAcquire();
+            if (admission == null) {
+                return Flux.error(new AIUnavailableException("Gemini circuit breaker is open"));
+            }
+            return call
+                    .doOnComplete(() -> onSuccess(admission))
+                    .doOnError(e -> onFailure(admission))
+                    .doOnCancel(() -> onCancel(admission));
+        });
+    }
+
+    public State getState() {
+        return state.get();
+    }
+
+    // Null when the call is rejected
+    private Admission tryAcquire() {
+        // Read before the state: a call admitted as the breaker opens then carries the old generation
+        long current = generation.get();
+        State observed = state.get();
+        if (observed == State.CLOSED) {
+            return new Admission(false, current);
+        }
+        if (observed == State.OPEN) {
+            if (System.currentTimeMillis() - openedAt < openMillis) {
+                rejected.increment();
+                return null;
+            }
+            state.compareAndSet(State.OPEN, State.HALF_OPEN);
+        }
+        // Half-open: let exactly one trial call through
+        if (trialInFlight.compareAndSet(false, true)) {
+            return new Admission(true, current);
+        }
+        rejected.increment();
+        return null;
+    }
+
+    private void onSuccess(Admission admission) {
+        successes.increment();
+        if (admission.trial()) {
+            consecutiveFailures.set(0);
+            state.set(State.CLOSED);
+            trialInFlight.set(false);
+        } else if (admission.generation() == generation.get()) {
+            consecutiveFailures.set(0);
+        }
+    }
+
+    private void onFailure(Admission admission) {
+        failures.increment();
+        if (admission.trial()) {
+            open();
+            trialInFlight.set(false);
+            return;
+        }
+        if (admission.generation() != generation.get()) {
+            return;
+        }
+        if (consecutiveFailures.incrementAndGet() >= failureThreshold) {
+            openedAt = System.currentTimeMillis();
+            if (state.compareAndSet(State.CLOSED, State.OPEN)) {
+                generation.incrementAndGet();
+                timesOpened.increment();
+            }
+        }
+    }
+
+    private void onCancel(Admission admission) {
+        // An abandoned trial proves nothing either way; allow another one
+        if (admission.trial()) {
+            trialInFlight.set(false);
+        }
+    }
+
+    private void open() {
+        openedAt = System.currentTimeMillis();
+        state.set(State.OPEN);
+        generation.incrementAndGet();
+        timesOpened.increment();
+    }
+
+    private record Admission(boolean trial, long generation) {
+    }
+
+    @Override
+    public String metricsName() {
+        return "circuitBreaker";
+    }
+
+    @Override
+    public Map<String, Number> metrics() {
+        State current = state.get();
+        return Map.of(
+                "open", current == State.OPEN ? 1 : 0,
+                "halfOpen", current == State.HALF_OPEN ? 1 : 0,
+                "consecutiveFailures", consecutiveFailures.get(),
+                "successes", successes.sum(),
+                "failures", failures.sum(),
+                "rejected", rejected.sum(),
+                "timesOpened", timesOpened.sum()
+        );
+    }
+}
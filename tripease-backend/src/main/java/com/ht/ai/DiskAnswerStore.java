@@ -0,0 +1,427 @@
+package com.ht.ai;
+
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Second cache tier that survives restarts: answers are appended to
+ * fixed-size memory-mapped segment files and located through an in-memory
+ * index that is rebuilt by scanning the segments on startup. Reads copy the
+ * value out of the mapped region without taking any lock.
+ *
+ * <p>All writes, segment rolls and compaction run on one writer thread, in
+ * submission order, so {@link #put} only encodes the record and queues it and
+ * is safe to call from an event loop. When the queue is full the write is
+ * dropped; this is a cache.
+ *
+ * <p>Record layout: record length (int, including itself), CRC32C of the
+ * rest of the record (int), expiry epoch millis (long), key length (int),
+ * key, value length (int), value. A zero length ends a segment, so a record
+ * whose length was never written (a torn append) is simply not seen.
+ *
+ * <p>Overwritten and expired records are reclaimed by compaction, which
+ * copies the live records of sparse segments forward and deletes them. When
+ * more than {@code max-segments} exist the oldest segment is dropped whole.
+ */
+@Component
+@Slf4j
+public class DiskAnswerStore implements MetricsSource {
+
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".dat";
+    private static final int HEADER_BYTES = 20;
+    private static final char KEY_SEPARATOR = '\u0000';
+    private static final double COMPACT_BELOW_LIVE_RATIO = 0.5;
+    private static final int WRITE_QUEUE_CAPACITY = 1024;
+
+    private final boolean enabled;
+    private final Path directory;
+    private final int segmentBytes;
+    private final int maxSegments;
+
+    private final ConcurrentHashMap<PromptKey, Location> index = new ConcurrentHashMap<>();
+    // Changed only on the writer thread (or by load, before it starts); read by metrics
+    private final ConcurrentSkipListMap<Long, Segment> segments = new ConcurrentSkipListMap<>();
+    private Segment active;
+    private final ThreadPoolExecutor writer;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder writes = new LongAdder();
+    private final LongAdder droppedWrites = new LongAdder();
+    private final LongAdder corruptSegments = new LongAdder();
+    private final LongAdder compactedSegments = new LongAdder();
+    private final LongAdder evictedSegments = new LongAdder();
+
+    public DiskAnswerStore(
+            @Value("${gemini.disk-cache.enabled:true}") boolean enabled,
+            @Value("${gemini.disk-cache.dir:ai-cache}") String directory,
+            @Value("${gemini.disk-cache.segment-mb:32}") int segmentMb,
+            @Value("${gemini.disk-cache.max-segments:8}") int maxSegments
+    ) {
+        this.enabled = enabled;
+        this.directory = Paths.get(directory);
+        this.segmentBytes = segmentMb * 1024 * 1024;
+        this.maxSegments = Math.max(maxSegments, 2);
+        this.writer = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(WRITE_QUEUE_CAPACITY), runnable -> {
+                    Thread thread = new Thread(runnable, "ai-disk-cache-writer");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    @PostConstruct
+    public void load() {
+        if (!enabled) {
+            return;
+        }
+        long start = System.currentTimeMillis();
+        try {
+            Files.createDirectories(directory);
+            try (Stream<Path> files = Files.list(directory)) {
+                files.filter(path -> segmentId(path) >= 0)
+                        .sorted((a, b) -> Long.compare(segmentId(a), segmentId(b)))
+                        .forEach(this::loadSegment);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open AI disk cache in " + directory.toAbsolutePath(), e);
+        }
+        active = segments.isEmpty() ? null : segments.lastEntry().getValue();
+        log.info("AI disk cache loaded {} answers from {} segments in {} ms",
+                index.size(), segments.size(), System.currentTimeMillis() - start);
+    }
+
+    public Optional<StoredAnswer> get(PromptKey key) {
+        Location location = enabled ? index.get(key) : null;
+        if (location == null || location.expiresAt <= System.currentTimeMillis()) {
+            misses.increment();
+            return Optional.empty();
+        }
+        hits.increment();
+        // slice() is absolute, so concurrent readers never share a position
+        ByteBuffer value = location.segment.buffer.slice(location.valueOffset, location.valueLength);
+        return Optional.of(new StoredAnswer(StandardCharsets.UTF_8.decode(value).toString(), location.expiresAt));
+    }
+
+    public void put(PromptKey key, String content, long expiresAt) {
+        if (!enabled) {
+            return;
+        }
+        String encodedKey = encodeKey(key);
+        if (encodedKey.chars().filter(c -> c == KEY_SEPARATOR).count() != 4) {
+            // A separator inside a field would not decode back to the same key
+            return;
+        }
+        byte[] keyBytes = encodedKey.getBytes(StandardCharsets.UTF_8);
+        byte[] valueBytes = content.getBytes(StandardCharsets.UTF_8);
+        int length = HEADER_BYTES + keyBytes.length + 4 + valueBytes.length;
+        if (length > segmentBytes) {
+            return;
+        }
+
+        ByteBuffer record = ByteBuffer.allocate(length);
+        record.putInt(length).putInt(0).putLong(expiresAt)
+                .putInt(keyBytes.length).put(keyBytes)
+                .putInt(valueBytes.length).put(valueBytes);
+        CRC32C crc = new CRC32C();
+        crc.update(record.array(), 8, length - 8);
+        record.putInt(4, (int) crc.getValue());
+
+        int valueOffset = HEADER_BYTES + keyBytes.length + 4;
+        if (!submit(() -> {
+            append(key, record.array(), expiresAt, valueOffset, valueBytes.length);
+            writes.increment();
+        })) {
+            droppedWrites.increment();
+        }
+    }
+
+    // Queued behind pending writes rather than holding them up while it copies records
+    @Scheduled(fixedDelayString = "${gemini.disk-cache.compact-ms:600000}")
+    public void compact() {
+        if (enabled) {
+            submit(this::compactSegments);
+        }
+    }
+
+    /**
+     * Waits until everything queued so far has been written.
+     */
+    public void awaitWrites() {
+        try {
+            writer.submit(() -> { }).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException | RejectedExecutionException e) {
+            // Nothing left to wait for
+        }
+    }
+
+    @PreDestroy
+    public void flush() {
+        writer.shutdown();
+        try {
+            writer.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (active != null) {
+            active.buffer.force();
+        }
+    }
+
+    private boolean submit(Runnable task) {
+        try {
+            writer.execute(() -> {
+                try {
+                    task.run();
+                } catch (RuntimeException e) {
+                    log.warn("AI disk cache write failed: {}", e.getMessage());
+                }
+            });
+            return true;
+        } catch (RejectedExecutionException e) {
+            return false;
+        }
+    }
+
+    private void compactSegments() {
+        long now = System.currentTimeMillis();
+        index.entrySet().removeIf(entry -> {
+            Location location = entry.getValue();
+            if (location.expiresAt > now) {
+                return false;
+            }
+            location.segment.liveBytes -= location.recordLength;
+            return true;
+        });
+
+        for (Segment segment : segments.values().toArray(new Segment[0])) {
+            if (segment == active || segment.liveBytes >= segment.writePosition * COMPACT_BELOW_LIVE_RATIO) {
+                continue;
+            }
+            for (Map.Entry<PromptKey, Location> entry : index.entrySet()) {
+                Location location = entry.getValue();
+                if (location.segment == segment) {
+                    // The record is copied as is, so its checksum stays valid
+                    byte[] record = new byte[location.recordLength];
+                    segment.buffer.get(location.recordOffset, record);
+                    append(entry.getKey(), record, location.expiresAt,
+                            location.valueOffset - location.recordOffset, location.valueLength);
+                }
+            }
+            // Copying may have rolled over and already evicted this segment
+            if (segments.containsKey(segment.id)) {
+                drop(segment);
+            }
+            compactedSegments.increment();
+        }
+    }
+
+    private void append(PromptKey key, byte[] record, long expiresAt, int valueOffsetInRecord, int valueLength) {
+        if (active == null || active.writePosition + record.length > active.buffer.capacity()) {
+            roll();
+        }
+        int offset = active.writePosition;
+        // Length last: until it is written the record is past the end of the segment
+        active.buffer.put(offset + 4, record, 4, record.length - 4);
+        active.buffer.putInt(offset, record.length);
+        active.writePosition += record.length;
+        active.liveBytes += record.length;
+
+        Location previous = index.put(key, new Location(active, offset, record.length,
+                offset + valueOffsetInRecord, valueLength, expiresAt));
+        if (previous != null) {
+            previous.segment.liveBytes -= previous.recordLength;
+        }
+    }
+
+    private void roll() {
+        if (active != null) {
+            active.buffer.force();
+        }
+        long id = segments.isEmpty() ? 1 : segments.lastKey() + 1;
+        Path path = directory.resolve(SEGMENT_PREFIX + id + SEGMENT_SUFFIX);
+        active = new Segment(id, path, map(path, segmentBytes));
+        segments.put(id, active);
+
+        while (segments.size() > maxSegments) {
+            drop(segments.firstEntry().getValue());
+            evictedSegments.increment();
+        }
+    }
+
+    // Readers still holding a Location keep the mapping alive; Linux lets a mapped file be deleted
+    private void drop(Segment segment) {
+        segments.remove(segment.id);
+        index.values().removeIf(location -> location.segment == segment);
+        try {
+            Files.deleteIfExists(segment.path);
+        } catch (IOException e) {
+            log.warn("Could not delete AI disk cache segment {}: {}", segment.path, e.getMessage());
+        }
+    }
+
+    private void loadSegment(Path path) {
+        long size;
+        try {
+            size = Files.size(path);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        Segment segment = new Segment(segmentId(path), path, map(path, (int) Math.max(size, segmentBytes)));
+        segments.put(segment.id, segment);
+
+        MappedByteBuffer buffer = segment.buffer;
+        long now = System.currentTimeMillis();
+        int offset = 0;
+        while (offset + HEADER_BYTES <= buffer.capacity()) {
+            int length = buffer.getInt(offset);
+            if (length == 0) {
+                break;
+            }
+            if (length < HEADER_BYTES + 4 || offset + length > buffer.capacity() || !checksumMatches(buffer, offset, length)) {
+                // Everything after a damaged record is unreachable; later appends overwrite it
+                corruptSegments.increment();
+                log.warn("AI disk cache segment {} is damaged at offset {}", path, offset);
+                buffer.putInt(offset, 0);
+                break;
+            }
+
+            long expiresAt = buffer.getLong(offset + 8);
+            int keyLength = buffer.getInt(offset + 16);
+            int valueOffset = offset + HEADER_BYTES + keyLength + 4;
+            if (expiresAt > now) {
+                ByteBuffer keyBytes = buffer.slice(offset + HEADER_BYTES, keyLength);
+                PromptKey key = decodeKey(StandardCharsets.UTF_8.decode(keyBytes).toString());
+                Location location = new Location(segment, offset, length, valueOffset,
+                        buffer.getInt(valueOffset - 4), expiresAt);
+                Location previous = index.put(key, location);
+                if (previous != null) {
+                    previous.segment.liveBytes -= previous.recordLength;
+                }
+                segment.liveBytes += length;
+            }
+            offset += length;
+        }
+        segment.writePosition = offset;
+    }
+
+    private static boolean checksumMatches(ByteBuffer buffer, int offset, int length) {
+        CRC32C crc = new CRC32C();
+        crc.update(buffer.slice(offset + 8, length - 8));
+        return (int) crc.getValue() == buffer.getInt(offset + 4);
+    }
+
+    private static MappedByteBuffer map(Path path, int size) {
+        try (FileChannel channel = FileChannel.open(path,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            // The mapping outlives the channel
+            return channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot map AI disk cache segment " + path, e);
+        }
+    }
+
+    private static long segmentId(Path path) {
+        String name = path.getFileName().toString();
+        if (!name.startsWith(SEGMENT_PREFIX) || !name.endsWith(SEGMENT_SUFFIX)) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private static String encodeKey(PromptKey key) {
+        return key.destination() + KEY_SEPARATOR + key.budgetRange() + KEY_SEPARATOR + key.preferences()
+                + KEY_SEPARATOR + key.model() + KEY_SEPARATOR + key.promptVersion();
+    }
+
+    private static PromptKey decodeKey(String encoded) {
+        String[] parts = encoded.split(String.valueOf(KEY_SEPARATOR), -1);
+        return new PromptKey(parts[0], parts[1], parts[2], parts[3], Integer.parseInt(parts[4]));
+    }
+
+    @Override
+    public String metricsName() {
+        return "diskCache";
+    }
+
+    @Override
+    public Map<String, Number> metrics() {
+        long usedBytes = 0;
+        long liveBytes = 0;
+        for (Segment segment : segments.values()) {
+            usedBytes += segment.writePosition;
+            liveBytes += segment.liveBytes;
+        }
+        return Map.ofEntries(
+                Map.entry("entries", index.size()),
+                Map.entry("segments", segments.size()),
+                Map.entry("usedBytes", usedBytes),
+                Map.entry("liveBytes", liveBytes),
+                Map.entry("hits", hits.sum()),
+                Map.entry("misses", misses.sum()),
+                Map.entry("writes", writes.sum()),
+                Map.entry("droppedWrites", droppedWrites.sum()),
+                Map.entry("corruptSegments", corruptSegments.sum()),
+                Map.entry("compactedSegments", compactedSegments.sum()),
+                Map.entry("evictedSegments", evictedSegments.sum())
+        );
+    }
+
+    public record StoredAnswer(String content, long expiresAt) {
+    }
+
+    private record Location(Segment segment, int recordOffset, int recordLength,
+                            int valueOffset, int valueLength, long expiresAt) {
+    }
+
+    private static final class Segment {
+
+        private final long id;
+        private final Path path;
+        private final MappedByteBuffer buffer;
+        private volatile int writePosition;
+        private volatile long liveBytes;
+
+        private Segment(long id, Path path, MappedByteBuffer buffer) {
+            this.id = id;
+            this.path = path;
+            this.buffer = buffer;
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package com.ht.ai;
+
+
+import com.ht.entity.ModelTier;
+
+/**
+ * Recommendation text together with the tier that produced it, the time
+ * taken since the request was accepted and the Gemini tokens it cost
+ * (0 for cached and fallback answers). {@code reusable} is false for answers
+ * that must not be served to other requests: fallbacks, the empty-answer
+ * placeholder and answers cut short to fit a latency budget.
+ */
+public record Generation(String content, ModelTier tier, long elapsedMs, long tokens, boolean reusable) {
+}
@@ -0,0 +1,115 @@
+package com.ht.ai;
+
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free latency histogram over a sliding time window. Values land in
+ * log-linear millisecond buckets (8 per power of two, so about 12% relative
+ * error) inside one of several rotating sub-windows. A sub-window is reset
+ * lazily by whichever recorder first lands in it after it expired. A sample
+ * recorded during that reset may be lost, which is acceptable for percentile
+ * estimates.
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BITS;
+    private static final int MAX_EXPONENT = 20;
+    private static final long MAX_VALUE = (1L << (MAX_EXPONENT + 1)) - 1;
+    private static final int BUCKETS = SUB_BUCKETS + (MAX_EXPONENT - SUB_BITS + 1) * SUB_BUCKETS;
+
+    private final long windowMillis;
+    private final Window[] windows;
+
+    public LatencyHistogram(int windowCount, long windowMillis) {
+        this.windowMillis = windowMillis;
+        this.windows = new Window[windowCount];
+        for (int i = 0; i < windowCount; i++) {
+            windows[i] = new Window();
+        }
+    }
+
+    public void record(long millis) {
+        long epoch = System.currentTimeMillis() / windowMillis;
+        Window window = windows[(int) (epoch % windows.length)];
+        long seen = window.epoch.get();
+        if (seen != epoch && window.epoch.compareAndSet(seen, epoch)) {
+            for (int i = 0; i < BUCKETS; i++) {
+                window.counts.set(i, 0);
+            }
+        }
+        window.counts.incrementAndGet(bucketOf(millis));
+    }
+
+    public long count() {
+        long[] counts = snapshot();
+        long total = 0;
+        for (long count : counts) {
+            total += count;
+        }
+        return total;
+    }
+
+    /**
+     * Upper bound of the bucket holding the given quantile, or -1 when fewer
+     * than {@code minSamples} values fall inside the window.
+     */
+    public long percentile(double quantile, long minSamples) {
+        long[] counts = snapshot();
+        long total = 0;
+        for (long count : counts) {
+            total += count;
+        }
+        if (total == 0 || total < minSamples) {
+            return -1;
+        }
+        long rank = (long) Math.ceil(quantile * total);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts[i];
+            if (seen >= Math.max(rank, 1)) {
+                return upperBound(i);
+            }
+        }
+        return upperBound(BUCKETS - 1);
+    }
+
+    private long[] snapshot() {
+        long current = System.currentTimeMillis() / windowMillis;
+        long[] counts = new long[BUCKETS];
+        for (Window window : windows) {
+            if (current - window.epoch.get() < windows.length) {
+                for (int i = 0; i < BUCKETS; i++) {
+                    counts[i] += window.counts.get(i);
+                }
+            }
+        }
+        return counts;
+    }
+
+    static int bucketOf(long millis) {
+        long value = Math.min(Math.max(millis, 0), MAX_VALUE);
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int sub = (int) (value >> (exponent - SUB_BITS)) - SUB_BUCKETS;
+        return SUB_BUCKETS + (exponent - SUB_BITS) * SUB_BUCKETS + sub;
+    }
+
+    static long upperBound(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int exponent = (bucket - SUB_BUCKETS) / SUB_BUCKETS + SUB_BITS;
+        int sub = (bucket - SUB_BUCKETS) % SUB_BUCKETS;
+        return ((long) (SUB_BUCKETS + sub + 1) << (exponent - SUB_BITS)) - 1;
+    }
+
+    private static final class Window {
+        private final AtomicLong epoch = new AtomicLong(-1);
+        private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    }
+}
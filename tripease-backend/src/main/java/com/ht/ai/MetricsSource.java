@@ -0,0 +1,14 @@
+package com.ht.ai;
+
+
+import java.util.Map;
+
+/**
+ * A component on the AI path that publishes counters on /api/admin/ai/metrics.
+ */
+public interface MetricsSource {
+
+    String metricsName();
+
+    Map<String, Number> metrics();
+}
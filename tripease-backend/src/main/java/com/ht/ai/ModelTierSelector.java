@@ -0,0 +1,119 @@
+package com.ht.ai;
+
+
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.ht.entity.ModelTier;
+
+/**
+ * Picks the Gemini tier for a call from the time left in the caller's latency
+ * budget. A tier is expected to take its recent p90 latency (or a configured
+ * prior until enough calls have been seen); if that overruns the budget, the
+ * output-token cap is cut in proportion, down to a floor, before trying the
+ * next faster tier. When nothing fits, the caller should use a cached or
+ * fallback answer instead.
+ */
+@Component
+public class ModelTierSelector implements MetricsSource {
+
+    private static final long MIN_SAMPLES = 20;
+
+    private final Map<ModelTier, Tier> tiers = new EnumMap<>(ModelTier.class);
+    private final double percentile;
+    private final int minOutputTokens;
+
+    public ModelTierSelector(
+            @Value("${gemini.model}") String richModel,
+            @Value("${gemini.tier.rich.max-output-tokens:2048}") int richMaxTokens,
+            @Value("${gemini.tier.rich.expected-latency-ms:8000}") long richExpectedMs,
+            @Value("${gemini.tier.fast.model:${gemini.model}}") String fastModel,
+            @Value("${gemini.tier.fast.max-output-tokens:1024}") int fastMaxTokens,
+            @Value("${gemini.tier.fast.expected-latency-ms:3000}") long fastExpectedMs,
+            @Value("${gemini.tier.percentile:0.9}") double percentile,
+            @Value("${gemini.tier.min-output-tokens:256}") int minOutputTokens
+    ) {
+        tiers.put(ModelTier.RICH, new Tier(richModel, richMaxTokens, richExpectedMs));
+        tiers.put(ModelTier.FAST, new Tier(fastModel, fastMaxTokens, fastExpectedMs));
+        this.percentile = percentile;
+        this.minOutputTokens = minOutputTokens;
+    }
+
+    /**
+     * @param remainingMs time left in the budget, {@link Long#MAX_VALUE} when unbounded
+     */
+    public Optional<TierPlan> select(long remainingMs) {
+        for (Map.Entry<ModelTier, Tier> entry : tiers.entrySet()) {
+            Tier tier = entry.getValue();
+            long expected = expectedLatencyMs(tier);
+            if (expected <= remainingMs) {
+                return Optional.of(new TierPlan(entry.getKey(), tier.model, tier.maxOutputTokens, false));
+            }
+            // Generation time is roughly proportional to output length
+            int scaledTokens = (int) (tier.maxOutputTokens * remainingMs / Math.max(expected, 1));
+            if (scaledTokens >= minOutputTokens) {
+                return Optional.of(new TierPlan(entry.getKey(), tier.model, scaledTokens, true));
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Distinct models from richest to fastest, for looking up cached answers.
+     */
+    public Map<String, ModelTier> models() {
+        Map<String, ModelTier> models = new LinkedHashMap<>();
+        tiers.forEach((tier, config) -> models.putIfAbsent(config.model, tier));
+        return models;
+    }
+
+    /**
+     * Feeds the latency of a call made at the tier's full output-token cap.
+     */
+    public void record(ModelTier tier, long elapsedMs) {
+        Tier config = tiers.get(tier);
+        if (config != null) {
+            config.latencies.record(elapsedMs);
+        }
+    }
+
+    private long expectedLatencyMs(Tier tier) {
+        long observed = tier.latencies.percentile(percentile, MIN_SAMPLES);
+        return observed < 0 ? tier.expectedMs : observed;
+    }
+
+    @Override
+    public String metricsName() {
+        return "modelTiers";
+    }
+
+    @Override
+    public Map<String, Number> metrics() {
+        Map<String, Number> metrics = new LinkedHashMap<>();
+        tiers.forEach((tier, config) -> {
+            String name = tier.name().toLowerCase(Locale.ROOT);
+            metrics.put(name + "ExpectedMs", expectedLatencyMs(config));
+            metrics.put(name + "Samples", config.latencies.count());
+        });
+        return metrics;
+    }
+
+    private static final class Tier {
+        private final String model;
+        private final int maxOutputTokens;
+        private final long expectedMs;
+        private final LatencyHistogram latencies = new LatencyHistogram(6, 10_000);
+
+        private Tier(String model, int maxOutputTokens, long expectedMs) {
+            this.model = model;
+            this.maxOutputTokens = maxOutputTokens;
+            this.expectedMs = expectedMs;
+        }
+    }
+}
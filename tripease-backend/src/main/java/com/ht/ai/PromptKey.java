@@ -0,0 +1,36 @@
+package com.ht.ai;
+
+
+import java.util.Locale;
+
+import com.ht.dto.request.AIRecommendationRequest;
+
+/**
+ * Identity of a recommendation prompt after normalization, so that requests
+ * differing only in case or spacing share a cached answer.
+ */
+public record PromptKey(
+        String destination,
+        String budgetRange,
+        String preferences,
+        String model,
+        int promptVersion
+) {
+
+    public static PromptKey of(AIRecommendationRequest request, String model, int promptVersion) {
+        return new PromptKey(
+                normalize(request.getDestination()),
+                normalize(request.getBudgetRange()),
+                normalize(request.getPreferences()),
+                model,
+                promptVersion
+        );
+    }
+
+    public static String normalize(String value) {
+        if (value == null) {
+            return "";
+        }
+        return value.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,136 @@
+package com.ht.ai;
+
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Size-bounded LRU of Gemini answers with a fixed time-to-live per entry.
+ * Writes go through to the {@link DiskAnswerStore}, and misses fall back to
+ * it, so answers outlive a restart.
+ */
+@Component
+public class RecommendationCache implements MetricsSource {
+
+    private final int maxEntries;
+    private final long ttlMillis;
+    private final long prewarmTtlMillis;
+    private final LinkedHashMap<PromptKey, Entry> entries;
+    private final DiskAnswerStore diskStore;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+    private final LongAdder prewarmedHits = new LongAdder();
+
+    public RecommendationCache(
+            @Value("${gemini.cache.max-entries:1000}") int maxEntries,
+            @Value("${gemini.cache.ttl-minutes:360}") long ttlMinutes,
+            @Value("${gemini.cache.prewarm-ttl-minutes:1440}") long prewarmTtlMinutes,
+            DiskAnswerStore diskStore
+    ) {
+        this.diskStore = diskStore;
+        this.maxEntries = maxEntries;
+        this.ttlMillis = TimeUnit.MINUTES.toMillis(ttlMinutes);
+        this.prewarmTtlMillis = TimeUnit.MINUTES.toMillis(prewarmTtlMinutes);
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<PromptKey, Entry> eldest) {
+                if (size() > RecommendationCache.this.maxEntries) {
+                    evictions.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    public Optional<String> get(PromptKey key) {
+        long now = System.currentTimeMillis();
+        synchronized (entries) {
+            Entry entry = entries.get(key);
+            if (entry != null && entry.expiresAt() > now) {
+                hits.increment();
+                if (entry.prewarmed()) {
+                    prewarmedHits.increment();
+                }
+                return Optional.of(entry.content());
+            }
+            if (entry != null) {
+                entries.remove(key);
+                expirations.increment();
+            }
+        }
+        misses.increment();
+        if (maxEntries <= 0) {
+            return Optional.empty();
+        }
+
+        Optional<DiskAnswerStore.StoredAnswer> stored = diskStore.get(key);
+        stored.ifPresent(answer -> {
+            synchronized (entries) {
+                entries.putIfAbsent(key, new Entry(answer.content(), answer.expiresAt(), false));
+            }
+        });
+        return stored.map(DiskAnswerStore.StoredAnswer::content);
+    }
+
+    public void put(PromptKey key, String content) {
+        put(key, new Entry(content, System.currentTimeMillis() + ttlMillis, false));
+    }
+
+    /**
+     * Stores an answer generated ahead of demand; it lives longer so that it
+     * lasts from the off-peak run into peak hours, and its hits are counted.
+     */
+    public void putPrewarmed(PromptKey key, String content) {
+        put(key, new Entry(content, System.currentTimeMillis() + prewarmTtlMillis, true));
+    }
+
+    private void put(PromptKey key, Entry entry) {
+        if (maxEntries <= 0) {
+            return;
+        }
+        synchronized (entries) {
+            entries.put(key, entry);
+        }
+        diskStore.put(key, entry.content(), entry.expiresAt());
+    }
+
+    public long prewarmedHits() {
+        return prewarmedHits.sum();
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    @Override
+    public String metricsName() {
+        return "recommendationCache";
+    }
+
+    @Override
+    public Map<String, Number> metrics() {
+        return Map.of(
+                "size", size(),
+                "hits", hits.sum(),
+                "misses", misses.sum(),
+                "evictions", evictions.sum(),
+                "expirations", expirations.sum(),
+                "prewarmedHits", prewarmedHits.sum()
+        );
+    }
+
+    private record Entry(String content, long expiresAt, boolean prewarmed) {
+    }
+}
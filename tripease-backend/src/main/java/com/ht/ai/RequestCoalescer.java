@@ -0,0 +1,70 @@
+package com.ht.ai;
+
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+import org.springframework.stereotype.Component;
+
+import reactor.core.publisher.Mono;
+
+/**
+ * Single-flight for Gemini calls: concurrent callers with the same prompt key
+ * subscribe to one shared upstream request and all see its value or error.
+ * The key is released as soon as that request terminates, so later callers
+ * start a fresh call (or hit the cache it populated).
+ */
+@Component
+public class RequestCoalescer implements MetricsSource {
+
+    private final ConcurrentHashMap<PromptKey, Flight<?>> inFlight = new ConcurrentHashMap<>();
+
+    private final LongAdder upstreamCalls = new LongAdder();
+    private final LongAdder collapsed = new LongAdder();
+
+    // All callers of one key ask for the same kind of answer, so the cast is safe
+    @SuppressWarnings("unchecked")
+    public <T> Mono<T> coalesce(PromptKey key, Supplier<Mono<T>> call) {
+        return Mono.defer(() -> {
+            Flight<?> flight = inFlight.get(key);
+            if (flight == null) {
+                Flight<T> candidate = new Flight<>(key, call);
+                flight = inFlight.putIfAbsent(key, candidate);
+                if (flight == null) {
+                    upstreamCalls.increment();
+                    return candidate.result;
+                }
+            }
+            collapsed.increment();
+            return (Mono<T>) flight.result;
+        });
+    }
+
+    @Override
+    public String metricsName() {
+        return "requestCoalescer";
+    }
+
+    @Override
+    public Map<String, Number> metrics() {
+        return Map.of(
+                "inFlight", inFlight.size(),
+                "upstreamCalls", upstreamCalls.sum(),
+                "collapsed", collapsed.sum()
+        );
+    }
+
+    private final class Flight<T> {
+
+        private final Mono<T> result;
+
+        private Flight(PromptKey key, Supplier<Mono<T>> call) {
+            // remove(key, this) so a newer flight for the same key is never dropped
+            this.result = Mono.defer(call)
+                    .doFinally(signal -> inFlight.remove(key, this))
+                    .cache();
+        }
+    }
+}
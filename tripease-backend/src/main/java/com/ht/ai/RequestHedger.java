@@ -0,0 +1,151 @@
+package com.ht.ai;
+
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import reactor.core.Exceptions;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+/**
+ * Tail-latency hedging for Gemini calls. When enabled, a call still pending
+ * after the rolling percentile of recent call latencies is duplicated; the
+ * first answer wins and the other call is cancelled. Hedges are paid for from
+ * a budget that every call tops up by {@code gemini.hedge.max-percent}, so they
+ * never exceed that share of traffic.
+ *
+ * Latencies are recorded whether or not hedging is on, so the percentile is
+ * available in metrics before turning it on.
+ */
+@Component
+public class RequestHedger implements MetricsSource {
+
+    // Budget is kept in thousandths of a hedge so deposits stay integral
+    private static final long UNIT = 1000;
+
+    private final boolean enabled;
+    private final double percentile;
+    private final long minDelayMs;
+    private final long minSamples;
+    private final long depositPerCall;
+    private final long maxBudget;
+    private final LatencyHistogram latencies;
+
+    private final AtomicLong budget = new AtomicLong();
+    private final LongAdder calls = new LongAdder();
+    private final LongAdder hedges = new LongAdder();
+    private final LongAdder hedgeWins = new LongAdder();
+    private final LongAdder budgetDenied = new LongAdder();
+
+    public RequestHedger(
+            @Value("${gemini.hedge.enabled:false}") boolean enabled,
+            @Value("${gemini.hedge.percentile:0.9}") double percentile,
+            @Value("${gemini.hedge.max-percent:5}") double maxPercent,
+            @Value("${gemini.hedge.min-delay-ms:50}") long minDelayMs,
+            @Value("${gemini.hedge.min-samples:100}") long minSamples
+    ) {
+        this.enabled = enabled;
+        this.percentile = percentile;
+        this.minDelayMs = minDelayMs;
+        this.minSamples = minSamples;
+        this.depositPerCall = Math.round(maxPercent / 100 * UNIT);
+        // Allow a short burst of hedges after a quiet spell, but no more
+        this.maxBudget = 10 * UNIT;
+        this.latencies = new LatencyHistogram(6, 10_000);
+    }
+
+    public <T> Mono<T> hedge(Supplier<Mono<T>> call) {
+        return Mono.defer(() -> {
+            calls.increment();
+            if (!enabled) {
+                return timed(call.get());
+            }
+            deposit();
+            long delay = hedgeDelayMs();
+            if (delay < 0) {
+                return timed(call.get());
+            }
+
+            Sinks.Empty<Void> primaryFailed = Sinks.empty();
+            Mono<T> primary = timed(call.get())
+                    .doOnError(e -> primaryFailed.tryEmitEmpty());
+            // Not worth hedging a call that has already failed: the breaker and fallback handle that
+            Mono<T> secondary = Mono.delay(Duration.ofMillis(delay))
+                    .takeUntilOther(primaryFailed.asMono())
+                    .filter(tick -> tryWithdraw())
+                    .flatMap(tick -> {
+                        hedges.increment();
+                        return timed(call.get()).doOnNext(value -> hedgeWins.increment());
+                    });
+
+            return Mono.firstWithValue(primary, secondary)
+                    .onErrorMap(NoSuchElementException.class, RequestHedger::firstFailure);
+        });
+    }
+
+    private long hedgeDelayMs() {
+        long threshold = latencies.percentile(percentile, minSamples);
+        return threshold < 0 ? -1 : Math.max(threshold, minDelayMs);
+    }
+
+    private <T> Mono<T> timed(Mono<T> call) {
+        return Mono.defer(() -> {
+            long start = System.nanoTime();
+            return call.doOnSuccess(value -> latencies.record((System.nanoTime() - start) / 1_000_000));
+        });
+    }
+
+    private void deposit() {
+        budget.accumulateAndGet(depositPerCall, (current, add) -> Math.min(maxBudget, current + add));
+    }
+
+    private boolean tryWithdraw() {
+        long current;
+        do {
+            current = budget.get();
+            if (current < UNIT) {
+                budgetDenied.increment();
+                return false;
+            }
+        } while (!budget.compareAndSet(current, current - UNIT));
+        return true;
+    }
+
+    // firstWithValue reports "no value" wrapping each source's error; surface the real one
+    private static Throwable firstFailure(NoSuchElementException e) {
+        if (e.getCause() == null) {
+            return e;
+        }
+        return Exceptions.unwrapMultiple(e.getCause()).stream()
+                .filter(cause -> !(cause instanceof NoSuchElementException))
+                .findFirst()
+                .orElse(e);
+    }
+
+    @Override
+    public String metricsName() {
+        return "hedging";
+    }
+
+    @Override
+    public Map<String, Number> metrics() {
+        return Map.of(
+                "enabled", enabled ? 1 : 0,
+                "latencyP50Ms", latencies.percentile(0.5, 1),
+                "latencyP90Ms", latencies.percentile(0.9, 1),
+                "latencyP99Ms", latencies.percentile(0.99, 1),
+                "calls", calls.sum(),
+                "hedges", hedges.sum(),
+                "hedgeWins", hedgeWins.sum(),
+                "budgetDenied", budgetDenied.sum()
+        );
+    }
+}
@@ -0,0 +1,63 @@
+package com.ht.ai;
+
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executor;
+
+import javax.sql.DataSource;
+
+import org.apache.tomcat.util.threads.ThreadPoolExecutor;
+import org.springframework.boot.web.context.WebServerInitializedEvent;
+import org.springframework.boot.web.embedded.tomcat.TomcatWebServer;
+import org.springframework.context.ApplicationListener;
+import org.springframework.stereotype.Component;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Occupancy of the pools every AI request passes through: Tomcat request
+ * threads and Hikari connections. Lets a load test tell which one saturates first.
+ */
+@Component
+@RequiredArgsConstructor
+public class ServerSaturationMetrics implements MetricsSource, ApplicationListener<WebServerInitializedEvent> {
+
+    private final DataSource dataSource;
+
+    private volatile Executor tomcatExecutor;
+
+    @Override
+    public void onApplicationEvent(WebServerInitializedEvent event) {
+        if (event.getWebServer() instanceof TomcatWebServer tomcat) {
+            tomcatExecutor = tomcat.getTomcat().getConnector().getProtocolHandler().getExecutor();
+        }
+    }
+
+    @Override
+    public String metricsName() {
+        return "server";
+    }
+
+    @Override
+    public Map<String, Number> metrics() {
+        Map<String, Number> metrics = new LinkedHashMap<>();
+        if (tomcatExecutor instanceof ThreadPoolExecutor threads) {
+            metrics.put("tomcatThreadsBusy", threads.getActiveCount());
+            metrics.put("tomcatThreads", threads.getPoolSize());
+            metrics.put("tomcatThreadsMax", threads.getMaximumPoolSize());
+            metrics.put("tomcatQueued", threads.getQueue().size());
+        }
+        if (dataSource instanceof HikariDataSource hikari && hikari.getHikariPoolMXBean() != null) {
+            HikariPoolMXBean pool = hikari.getHikariPoolMXBean();
+            metrics.put("dbConnectionsActive", pool.getActiveConnections());
+            metrics.put("dbConnectionsIdle", pool.getIdleConnections());
+            metrics.put("dbConnectionsMax", hikari.getMaximumPoolSize());
+            metrics.put("dbThreadsAwaitingConnection", pool.getThreadsAwaitingConnection());
+        }
+        return metrics;
+    }
+}
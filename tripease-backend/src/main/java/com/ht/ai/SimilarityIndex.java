@@ -0,0 +1,335 @@
+package com.ht.ai;
+
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import com.ht.dto.request.AIRecommendationRequest;
+import com.ht.entity.AIRecommendation;
+import com.ht.entity.CompressedTextConverter;
+import com.ht.entity.ModelTier;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Finds a past answer whose inputs (destination, budget and preferences) are
+ * close enough to a new request to be reused. Each answer is a sparse TF-IDF
+ * vector of sorted term ids with parallel weights; IDF is applied at query
+ * time so adding answers never rewrites older vectors. Holds at most
+ * {@code max-entries} answers, compressed, and replaces the oldest first.
+ */
+@Component
+@Slf4j
+public class SimilarityIndex implements MetricsSource {
+
+    private static final Pattern NON_WORD = Pattern.compile("[^\\p{L}\\p{N}]+");
+    private static final Set<String> STOP_WORDS = Set.of(
+            "a", "an", "and", "the", "of", "in", "on", "for", "to", "with", "at", "by", "or",
+            "is", "are", "i", "we", "my", "our", "me", "us", "want", "like", "some", "near");
+
+    // Destination terms count double, and an answer must share at least one of them
+    private static final String DESTINATION_PREFIX = "d:";
+    private static final String BUDGET_PREFIX = "b:";
+    private static final float DESTINATION_WEIGHT = 2f;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final int maxEntries;
+    private final double threshold;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<String, Integer> termIds = new HashMap<>();
+    private final ArrayDeque<Integer> freeTermIds = new ArrayDeque<>();
+    private String[] terms = new String[256];
+    private int[] documentFrequency = new int[256];
+    private int termCount;
+    private final Entry[] entries;
+    private int nextSlot;
+    private int size;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder skippedDuplicates = new LongAdder();
+
+    public SimilarityIndex(
+            JdbcTemplate jdbcTemplate,
+            @Value("${gemini.similarity.max-entries:2000}") int maxEntries,
+            @Value("${gemini.similarity.threshold:0.85}") double threshold
+    ) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.maxEntries = maxEntries;
+        this.threshold = threshold;
+        this.entries = new Entry[Math.max(maxEntries, 0)];
+    }
+
+    public Optional<Match> find(AIRecommendationRequest request) {
+        if (maxEntries <= 0) {
+            return Optional.empty();
+        }
+        Optional<Match> match = search(request.getDestination(), request.getBudgetRange(), request.getPreferences());
+        if (match.isPresent()) {
+            hits.increment();
+        } else {
+            misses.increment();
+        }
+        return match;
+    }
+
+    /**
+     * Indexes a saved answer unless it is not reusable (a fallback, placeholder
+     * or shortened answer) or a near duplicate of one already held.
+     */
+    public void add(AIRecommendation recommendation) {
+        if (maxEntries <= 0 || recommendation.getContent() == null || !recommendation.isReusable()) {
+            return;
+        }
+        if (search(recommendation.getDestination(), recommendation.getBudgetRange(), recommendation.getPreferences()).isPresent()) {
+            skippedDuplicates.increment();
+            return;
+        }
+        add(recommendation.getDestination(), recommendation.getBudgetRange(), recommendation.getPreferences(),
+                recommendation.getModelTier(), CompressedTextConverter.compress(recommendation.getContent()));
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        if (maxEntries <= 0) {
+            return;
+        }
+        long start = System.currentTimeMillis();
+        List<Object[]> rows = new ArrayList<>();
+        jdbcTemplate.query("SELECT destination, budget_range, preferences, model_tier, content_compressed "
+                        + "FROM ai_recommendations WHERE reusable AND (model_tier IS NULL OR model_tier <> 'FALLBACK') "
+                        + "ORDER BY id DESC LIMIT ?",
+                rs -> {
+                    rows.add(new Object[] {rs.getString(1), rs.getString(2), rs.getString(3),
+                            rs.getString(4), rs.getBytes(5)});
+                },
+                maxEntries);
+
+        // Oldest first, so the newest answers end up furthest from eviction
+        for (int i = rows.size() - 1; i >= 0; i--) {
+            Object[] row = rows.get(i);
+            ModelTier tier = row[3] != null ? ModelTier.valueOf((String) row[3]) : ModelTier.RICH;
+            add((String) row[0], (String) row[1], (String) row[2], tier, (byte[]) row[4]);
+        }
+        log.info("Similarity index rebuilt with {} answers in {} ms", rows.size(), System.currentTimeMillis() - start);
+    }
+
+    private Optional<Match> search(String destination, String budgetRange, String preferences) {
+        Map<String, Float> query = termFrequencies(destination, budgetRange, preferences);
+        Entry best = null;
+        double bestScore = 0;
+        lock.readLock().lock();
+        try {
+            Vector vector = toVector(query);
+            if (vector != null) {
+                for (int i = 0; i < size; i++) {
+                    double score = cosine(vector, entries[i]);
+                    if (score > bestScore) {
+                        best = entries[i];
+                        bestScore = score;
+                    }
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        if (best == null || bestScore < threshold) {
+            return Optional.empty();
+        }
+        return Optional.of(new Match(CompressedTextConverter.decompress(best.content), best.tier, bestScore));
+    }
+
+    private void add(String destination, String budgetRange, String preferences, ModelTier tier, byte[] content) {
+        Map<String, Float> frequencies = termFrequencies(destination, budgetRange, preferences);
+        if (frequencies.isEmpty()) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            if (size == maxEntries) {
+                release(entries[nextSlot]);
+            } else {
+                size++;
+            }
+
+            int[] ids = new int[frequencies.size()];
+            float[] weights = new float[ids.length];
+            int i = 0;
+            for (Map.Entry<String, Float> term : frequencies.entrySet()) {
+                ids[i] = acquireTermId(term.getKey());
+                weights[i++] = term.getValue();
+            }
+            sortByTermId(ids, weights);
+            entries[nextSlot] = new Entry(ids, weights, tier, content);
+            nextSlot = (nextSlot + 1) % maxEntries;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private int acquireTermId(String term) {
+        Integer id = termIds.get(term);
+        if (id == null) {
+            id = freeTermIds.isEmpty() ? termCount++ : freeTermIds.pop();
+            if (id >= terms.length) {
+                terms = Arrays.copyOf(terms, terms.length * 2);
+                documentFrequency = Arrays.copyOf(documentFrequency, documentFrequency.length * 2);
+            }
+            terms[id] = term;
+            termIds.put(term, id);
+        }
+        documentFrequency[id]++;
+        return id;
+    }
+
+    // Terms no longer used by any answer are dropped so the vocabulary stays bounded too
+    private void release(Entry evicted) {
+        for (int id : evicted.termIds) {
+            if (--documentFrequency[id] == 0) {
+                termIds.remove(terms[id]);
+                terms[id] = null;
+                freeTermIds.push(id);
+            }
+        }
+    }
+
+    // Caller holds a lock; unknown terms still count towards the query norm
+    private Vector toVector(Map<String, Float> frequencies) {
+        if (frequencies.isEmpty()) {
+            return null;
+        }
+        int known = 0;
+        int[] ids = new int[frequencies.size()];
+        float[] weights = new float[ids.length];
+        double norm = 0;
+        for (Map.Entry<String, Float> term : frequencies.entrySet()) {
+            Integer id = termIds.get(term.getKey());
+            double weight = term.getValue() * idf(id != null ? documentFrequency[id] : 0);
+            norm += weight * weight;
+            if (id != null) {
+                ids[known] = id;
+                weights[known++] = (float) weight;
+            }
+        }
+        ids = Arrays.copyOf(ids, known);
+        weights = Arrays.copyOf(weights, known);
+        sortByTermId(ids, weights);
+        return new Vector(ids, weights, Math.sqrt(norm));
+    }
+
+    private double cosine(Vector query, Entry entry) {
+        double dot = 0;
+        double norm = 0;
+        boolean sharesDestination = false;
+        int q = 0;
+        for (int d = 0; d < entry.termIds.length; d++) {
+            int id = entry.termIds[d];
+            double weight = entry.weights[d] * idf(documentFrequency[id]);
+            norm += weight * weight;
+            while (q < query.termIds.length && query.termIds[q] < id) {
+                q++;
+            }
+            if (q < query.termIds.length && query.termIds[q] == id) {
+                dot += query.weights[q] * weight;
+                sharesDestination |= terms[id].startsWith(DESTINATION_PREFIX);
+            }
+        }
+        if (!sharesDestination || dot == 0) {
+            return 0;
+        }
+        return dot / (query.norm * Math.sqrt(norm));
+    }
+
+    private double idf(int documentFrequency) {
+        return Math.log((size + 1.0) / (documentFrequency + 1.0)) + 1;
+    }
+
+    private static Map<String, Float> termFrequencies(String destination, String budgetRange, String preferences) {
+        Map<String, Float> counts = new TreeMap<>();
+        addTerms(counts, destination, DESTINATION_PREFIX, DESTINATION_WEIGHT);
+        addTerms(counts, budgetRange, BUDGET_PREFIX, 1);
+        addTerms(counts, preferences, "", 1);
+        // Sub-linear term frequency, so repeating a word does not dominate the vector
+        counts.replaceAll((term, count) -> (float) (1 + Math.log(count)));
+        return counts;
+    }
+
+    private static void addTerms(Map<String, Float> counts, String text, String prefix, float weight) {
+        if (text == null) {
+            return;
+        }
+        for (String token : NON_WORD.split(text.toLowerCase(Locale.ROOT))) {
+            if (token.length() > 1 && !STOP_WORDS.contains(token)) {
+                counts.merge(prefix + token, weight, Float::sum);
+            }
+        }
+    }
+
+    // Insertion sort: vectors hold a handful of terms
+    private static void sortByTermId(int[] ids, float[] weights) {
+        for (int i = 1; i < ids.length; i++) {
+            int id = ids[i];
+            float weight = weights[i];
+            int j = i - 1;
+            while (j >= 0 && ids[j] > id) {
+                ids[j + 1] = ids[j];
+                weights[j + 1] = weights[j];
+                j--;
+            }
+            ids[j + 1] = id;
+            weights[j + 1] = weight;
+        }
+    }
+
+    @Override
+    public String metricsName() {
+        return "similarityIndex";
+    }
+
+    @Override
+    public Map<String, Number> metrics() {
+        int answers;
+        int vocabulary;
+        lock.readLock().lock();
+        try {
+            answers = size;
+            vocabulary = termIds.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+        return Map.of(
+                "size", answers,
+                "terms", vocabulary,
+                "hits", hits.sum(),
+                "misses", misses.sum(),
+                "skippedDuplicates", skippedDuplicates.sum()
+        );
+    }
+
+    public record Match(String content, ModelTier tier, double score) {
+    }
+
+    private record Vector(int[] termIds, float[] weights, double norm) {
+    }
+
+    private record Entry(int[] termIds, float[] weights, ModelTier tier, byte[] content) {
+    }
+}
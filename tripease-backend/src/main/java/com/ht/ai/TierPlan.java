@@ -0,0 +1,11 @@
+package com.ht.ai;
+
+
+import com.ht.entity.ModelTier;
+
+/**
+ * Model and output-token cap chosen for one Gemini call. {@code reduced} is set
+ * when the cap was cut below the tier's normal limit to fit a latency budget.
+ */
+public record TierPlan(ModelTier tier, String model, int maxOutputTokens, boolean reduced) {
+}
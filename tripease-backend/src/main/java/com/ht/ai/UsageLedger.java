@@ -0,0 +1,194 @@
+package com.ht.ai;
+
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.ht.repository.AIUsageRepository;
+import com.ht.repository.AIUsageRepository.UsageDelta;
+
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * In-memory AI usage per user and day. Requests only add to striped
+ * counters; the deltas since the last flush are written to ai_usage in one
+ * batch on a timer, so the hot path never waits on the database. Recording
+ * never queries either, as tokens are recorded on the WebClient event loop;
+ * what earlier runs persisted is loaded by the first quota check of the day,
+ * which runs on the request thread. Each counter has its own lock, so no
+ * user's load waits on another's or on a flush being written.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class UsageLedger implements MetricsSource {
+
+    private static final long UNKNOWN = -1;
+
+    private final AIUsageRepository usageRepository;
+
+    private final ConcurrentHashMap<UsageKey, Counter> counters = new ConcurrentHashMap<>();
+
+    private final LongAdder flushes = new LongAdder();
+    private final LongAdder flushFailures = new LongAdder();
+    private final LongAdder baselineRetries = new LongAdder();
+
+    public void recordRequests(Long userId, int requests) {
+        counter(userId).requests.add(requests);
+    }
+
+    public void recordTokens(Long userId, long tokens) {
+        if (tokens > 0) {
+            counter(userId).tokens.add(tokens);
+        }
+    }
+
+    /**
+     * Tokens used today, including what earlier runs already persisted.
+     */
+    public long tokensToday(Long userId) {
+        Counter counter = counter(userId);
+        if (counter.baselineTokens == UNKNOWN) {
+            loadBaseline(userId, counter);
+        }
+        return counter.baselineTokens + counter.tokens.sum();
+    }
+
+    /**
+     * Reads what is persisted without holding any lock, then subtracts what
+     * this counter has flushed under the counter's own lock. The two agree
+     * only if none of the counter's flushes started in between; otherwise the
+     * read may or may not include that flush, so it is taken again.
+     */
+    private void loadBaseline(Long userId, Counter counter) {
+        while (true) {
+            long epoch;
+            synchronized (counter) {
+                if (counter.baselineTokens != UNKNOWN) {
+                    return;
+                }
+                epoch = counter.flushing ? -1 : counter.flushEpoch;
+            }
+            long persisted = usageRepository.findTokens(userId, LocalDate.now());
+            synchronized (counter) {
+                if (counter.baselineTokens != UNKNOWN) {
+                    return;
+                }
+                if (!counter.flushing && counter.flushEpoch == epoch) {
+                    counter.baselineTokens = persisted - counter.flushedTokens;
+                    return;
+                }
+            }
+            baselineRetries.increment();
+        }
+    }
+
+    // Synchronized only against itself; quota checks and recording never wait on it
+    @Scheduled(fixedDelayString = "${ai.usage.flush-ms:10000}")
+    @PreDestroy
+    public synchronized void flush() {
+        List<Counter> flushed = new ArrayList<>();
+        List<UsageDelta> deltas = new ArrayList<>();
+        counters.forEach((key, counter) -> {
+            synchronized (counter) {
+                long requests = counter.requests.sum() - counter.flushedRequests;
+                long tokens = counter.tokens.sum() - counter.flushedTokens;
+                if (requests > 0 || tokens > 0) {
+                    counter.flushing = true;
+                    counter.flushEpoch++;
+                    deltas.add(new UsageDelta(key.userId(), key.day(), requests, tokens));
+                    flushed.add(counter);
+                }
+            }
+        });
+
+        if (!deltas.isEmpty()) {
+            boolean written = false;
+            try {
+                usageRepository.addAll(deltas);
+                written = true;
+                flushes.increment();
+            } catch (RuntimeException e) {
+                // Watermarks stay put, so the same deltas are retried next time
+                flushFailures.increment();
+                log.error("Error flushing AI usage: {}", e.getMessage());
+            } finally {
+                for (int i = 0; i < deltas.size(); i++) {
+                    Counter counter = flushed.get(i);
+                    synchronized (counter) {
+                        if (written) {
+                            counter.flushedRequests += deltas.get(i).requests();
+                            counter.flushedTokens += deltas.get(i).tokens();
+                        }
+                        counter.flushing = false;
+                    }
+                }
+            }
+            if (!written) {
+                return;
+            }
+        }
+
+        // Earlier days are no longer checked against the quota once persisted
+        LocalDate today = LocalDate.now();
+        counters.entrySet().removeIf(entry -> entry.getKey().day().isBefore(today) && entry.getValue().isFlushed());
+    }
+
+    private Counter counter(Long userId) {
+        return counters.computeIfAbsent(new UsageKey(userId, LocalDate.now()), key -> new Counter());
+    }
+
+    @Override
+    public String metricsName() {
+        return "usageLedger";
+    }
+
+    @Override
+    public Map<String, Number> metrics() {
+        long pendingTokens = 0;
+        for (Counter counter : counters.values()) {
+            pendingTokens += counter.pendingTokens();
+        }
+        return Map.of(
+                "counters", counters.size(),
+                "pendingTokens", pendingTokens,
+                "flushes", flushes.sum(),
+                "flushFailures", flushFailures.sum(),
+                "baselineRetries", baselineRetries.sum()
+        );
+    }
+
+    private record UsageKey(Long userId, LocalDate day) {
+    }
+
+    private static final class Counter {
+
+        // Persisted by earlier runs; set once by loadBaseline
+        private volatile long baselineTokens = UNKNOWN;
+        private final LongAdder requests = new LongAdder();
+        private final LongAdder tokens = new LongAdder();
+
+        // Guarded by the counter; flushEpoch counts the flushes started, flushing is set while one is written
+        private long flushedRequests;
+        private long flushedTokens;
+        private long flushEpoch;
+        private boolean flushing;
+
+        private synchronized boolean isFlushed() {
+            return requests.sum() == flushedRequests && tokens.sum() == flushedTokens;
+        }
+
+        private synchronized long pendingTokens() {
+            return tokens.sum() - flushedTokens;
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package com.ht.ai;
+
+
+import java.util.ArrayDeque;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+
+/**
+ * Caps the Gemini calls one user has in flight across all of their requests,
+ * so parallel batches cannot multiply the per-user limit. Calls over the cap
+ * wait in line without holding a thread. A user's gate exists only while
+ * they have calls running or waiting, so the map stays bounded by active users.
+ */
+@Component
+public class UserConcurrencyLimiter implements MetricsSource {
+
+    private final int maxConcurrentPerUser;
+    private final ConcurrentHashMap<Long, Gate> gates = new ConcurrentHashMap<>();
+
+    private final LongAdder admitted = new LongAdder();
+    private final LongAdder queued = new LongAdder();
+
+    public UserConcurrencyLimiter(@Value("${ai.batch.max-concurrency-per-user:3}") int maxConcurrentPerUser) {
+        this.maxConcurrentPerUser = Math.max(1, maxConcurrentPerUser);
+    }
+
+    public int getMaxConcurrentPerUser() {
+        return maxConcurrentPerUser;
+    }
+
+    public <T> Mono<T> limit(Long userId, Mono<T> call) {
+        return Mono.defer(() -> {
+            Gate gate = gates.compute(userId, (id, existing) -> {
+                Gate held = existing != null ? existing : new Gate();
+                held.references++;
+                return held;
+            });
+            Waiter waiter = new Waiter();
+            return Mono.<Void>create(sink -> gate.acquire(waiter, sink))
+                    .then(call)
+                    // Runs on success, error and cancel, whether or not the permit was granted yet
+                    .doFinally(signal -> {
+                        gate.release(waiter);
+                        gates.computeIfPresent(userId, (id, held) -> --held.references == 0 ? null : held);
+                    });
+        });
+    }
+
+    @Override
+    public String metricsName() {
+        return "userConcurrencyLimiter";
+    }
+
+    @Override
+    public Map<String, Number> metrics() {
+        return Map.of(
+                "activeUsers", gates.size(),
+                "admitted", admitted.sum(),
+                "queued", queued.sum()
+        );
+    }
+
+    private static final class Waiter {
+
+        // Guarded by the gate
+        private MonoSink<Void> sink;
+        private boolean holding;
+    }
+
+    private final class Gate {
+
+        // references is guarded by the map's compute; the rest by this
+        private int references;
+        private int available = maxConcurrentPerUser;
+        private final ArrayDeque<Waiter> waiters = new ArrayDeque<>();
+
+        private void acquire(Waiter waiter, MonoSink<Void> sink) {
+            synchronized (this) {
+                if (available == 0) {
+                    waiter.sink = sink;
+                    waiters.add(waiter);
+                    queued.increment();
+                    return;
+                }
+                available--;
+                waiter.holding = true;
+            }
+            admitted.increment();
+            sink.success();
+        }
+
+        // Hands the permit to the next waiter; a waiter that gave up is just removed
+        private void release(Waiter waiter) {
+            Waiter next;
+            synchronized (this) {
+                waiters.remove(waiter);
+                if (!waiter.holding) {
+                    return;
+                }
+                waiter.holding = false;
+                next = waiters.poll();
+                if (next == null) {
+                    available++;
+                    return;
+                }
+                next.holding = true;
+            }
+            admitted.increment();
+            next.sink.success();
+        }
+    }
+}
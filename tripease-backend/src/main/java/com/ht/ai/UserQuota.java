@@ -0,0 +1,123 @@
+package com.ht.ai;
+
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.ht.exception.QuotaExceededException;
+
+/**
+ * Per-user admission for AI requests: a token bucket bounds the request rate
+ * and the {@link UsageLedger} bounds Gemini tokens spent per day. Checked
+ * before any prompt is built, so rejected calls cost nothing upstream.
+ */
+@Component
+public class UserQuota implements MetricsSource {
+
+    private final UsageLedger usageLedger;
+    private final double permitsPerMilli;
+    private final int burst;
+    private final long dailyTokens;
+
+    private final ConcurrentHashMap<Long, Bucket> buckets = new ConcurrentHashMap<>();
+
+    private final LongAdder rateLimited = new LongAdder();
+    private final LongAdder tokenQuotaExceeded = new LongAdder();
+
+    public UserQuota(
+            UsageLedger usageLedger,
+            @Value("${ai.quota.requests-per-minute:20}") int requestsPerMinute,
+            @Value("${ai.quota.burst:10}") int burst,
+            @Value("${ai.quota.daily-tokens:200000}") long dailyTokens
+    ) {
+        this.usageLedger = usageLedger;
+        this.permitsPerMilli = requestsPerMinute / (double) TimeUnit.MINUTES.toMillis(1);
+        this.burst = burst;
+        this.dailyTokens = dailyTokens;
+    }
+
+    /**
+     * Admits {@code requests} AI generations for the user or throws
+     * {@link QuotaExceededException} with the seconds to wait.
+     */
+    public void acquire(Long userId, int requests) {
+        if (dailyTokens > 0 && usageLedger.tokensToday(userId) >= dailyTokens) {
+            tokenQuotaExceeded.increment();
+            long untilMidnight = Duration.between(LocalDateTime.now(), LocalDate.now().plusDays(1).atStartOfDay()).toSeconds();
+            throw new QuotaExceededException("Daily AI token quota exceeded", Math.max(1, untilMidnight));
+        }
+
+        long waitMillis = buckets.computeIfAbsent(userId, id -> new Bucket(burst)).tryTake(requests);
+        if (waitMillis > 0) {
+            rateLimited.increment();
+            throw new QuotaExceededException("Too many AI requests, please slow down",
+                    Math.max(1, TimeUnit.MILLISECONDS.toSeconds(waitMillis + 999)));
+        }
+        usageLedger.recordRequests(userId, requests);
+    }
+
+    // A bucket that has refilled completely carries no state worth keeping
+    @Scheduled(fixedDelayString = "${ai.quota.cleanup-ms:600000}")
+    public void evictIdleBuckets() {
+        long now = System.currentTimeMillis();
+        buckets.values().removeIf(bucket -> bucket.isFull(now));
+    }
+
+    @Override
+    public String metricsName() {
+        return "userQuota";
+    }
+
+    @Override
+    public Map<String, Number> metrics() {
+        return Map.of(
+                "buckets", buckets.size(),
+                "rateLimited", rateLimited.sum(),
+                "tokenQuotaExceeded", tokenQuotaExceeded.sum()
+        );
+    }
+
+    private final class Bucket {
+
+        private double permits;
+        private long refilledAt;
+
+        private Bucket(int permits) {
+            this.permits = permits;
+            this.refilledAt = System.currentTimeMillis();
+        }
+
+        /**
+         * Takes the permits and returns 0, or returns the millis until they
+         * would be available. More than the burst costs a full bucket.
+         */
+        private synchronized long tryTake(int requests) {
+            int requested = Math.min(requests, burst);
+            refill(System.currentTimeMillis());
+            if (permits >= requested) {
+                permits -= requested;
+                return 0;
+            }
+            return (long) Math.ceil((requested - permits) / permitsPerMilli);
+        }
+
+        private synchronized boolean isFull(long now) {
+            refill(now);
+            return permits >= burst;
+        }
+
+        private void refill(long now) {
+            permits = Math.min(burst, permits + (now - refilledAt) * permitsPerMilli);
+            refilledAt = now;
+        }
+    }
+}
@@ -1,10 +1,17 @@
 package com.ht.config;
 
+import java.time.Duration;
+
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
 import org.springframework.web.reactive.function.client.WebClient;
 
+import io.netty.channel.ChannelOption;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
 @Configuration
 public class GeminiConfig {
 
@@ -14,12 +21,44 @@ public class GeminiConfig {
     @Value("${gemini.api.key}")
     private String geminiApiKey;
 
+    @Value("${gemini.http.max-connections:100}")
+    private int maxConnections;
+
+    @Value("${gemini.http.pending-acquire-timeout-ms:2000}")
+    private long pendingAcquireTimeoutMs;
+
+    @Value("${gemini.http.max-idle-ms:30000}")
+    private long maxIdleMs;
+
+    @Value("${gemini.http.connect-timeout-ms:3000}")
+    private int connectTimeoutMs;
+
+    @Value("${gemini.http.response-timeout-ms:30000}")
+    private long responseTimeoutMs;
+
+    @Bean(destroyMethod = "dispose")
+    public ConnectionProvider geminiConnectionProvider() {
+        return ConnectionProvider.builder("gemini")
+                .maxConnections(maxConnections)
+                .pendingAcquireTimeout(Duration.ofMillis(pendingAcquireTimeoutMs))
+                .maxIdleTime(Duration.ofMillis(maxIdleMs))
+                .evictInBackground(Duration.ofMillis(maxIdleMs))
+                .build();
+    }
+
     @Bean
-    public WebClient geminiWebClient() {
+    public WebClient geminiWebClient(ConnectionProvider geminiConnectionProvider) {
+        HttpClient httpClient = HttpClient.create(geminiConnectionProvider)
+                .compress(true)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, connectTimeoutMs)
+                // Max gap between reads, so it also bounds stalls inside a stream
+                .responseTimeout(Duration.ofMillis(responseTimeoutMs));
+
         return WebClient.builder()
+                .clientConnector(new ReactorClientHttpConnector(httpClient))
                 .baseUrl(geminiApiUrl)
                 .defaultHeader("Content-Type", "application/json")
                 .defaultHeader("x-goog-api-key", geminiApiKey)
                 .build();
     }
-}
\ No newline at end of file
+}
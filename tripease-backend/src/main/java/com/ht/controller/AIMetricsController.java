@@ -0,0 +1,30 @@
+package com.ht.controller;
+
+
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.ht.ai.MetricsSource;
+
+import lombok.RequiredArgsConstructor;
+
+@RestController
+@RequestMapping("/api/admin/ai")
+@RequiredArgsConstructor
+public class AIMetricsController {
+
+    private final List<MetricsSource> metricsSources;
+
+    @GetMapping("/metrics")
+    public ResponseEntity<Map<String, Map<String, Number>>> getMetrics() {
+        Map<String, Map<String, Number>> metrics = new TreeMap<>();
+        metricsSources.forEach(source -> metrics.put(source.metricsName(), new TreeMap<>(source.metrics())));
+        return ResponseEntity.ok(metrics);
+    }
+}
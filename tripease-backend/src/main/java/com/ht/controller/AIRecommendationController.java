@@ -2,24 +2,34 @@ package com.ht.controller;
 
 
 
+import java.net.URI;
 import java.util.List;
 
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import com.ht.dto.request.AIRecommendationBatchRequest;
 import com.ht.dto.request.AIRecommendationRequest;
 import com.ht.dto.response.AIRecommendationResponse;
+import com.ht.dto.response.RecommendationJobResponse;
 import com.ht.service.AIRecommendationService;
+import com.ht.service.RecommendationJobService;
+import com.ht.util.Constants;
 
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
 @RestController
 @RequestMapping("/api/ai")
@@ -27,20 +37,57 @@ import lombok.RequiredArgsConstructor;
 public class AIRecommendationController {
 
     private final AIRecommendationService recommendationService;
+    private final RecommendationJobService jobService;
 
     @PostMapping("/recommendation")
-    public ResponseEntity<AIRecommendationResponse> generateRecommendation(
+    public Mono<ResponseEntity<AIRecommendationResponse>> generateRecommendation(
             @Valid @RequestBody AIRecommendationRequest request
     ) {
-        return new ResponseEntity<>(
-                recommendationService.generateRecommendation(request),
-                HttpStatus.CREATED
-        );
+        return recommendationService.generateRecommendation(request)
+                .map(response -> new ResponseEntity<>(response, HttpStatus.CREATED));
     }
 
+    @PostMapping(value = "/recommendation", params = "async=true")
+    public ResponseEntity<RecommendationJobResponse> submitRecommendationJob(
+            @Valid @RequestBody AIRecommendationRequest request
+    ) {
+        RecommendationJobResponse job = jobService.submit(request);
+        return ResponseEntity.accepted()
+                .location(URI.create("/api/ai/jobs/" + job.getId()))
+                .body(job);
+    }
+
+    @GetMapping("/jobs/{id}")
+    public ResponseEntity<RecommendationJobResponse> getJob(@PathVariable Long id) {
+        return ResponseEntity.ok(jobService.getJob(id));
+    }
+
+    @PostMapping(value = "/recommendation/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<ServerSentEvent<Object>> streamRecommendation(
+            @Valid @RequestBody AIRecommendationRequest request
+    ) {
+        return recommendationService.streamRecommendation(request);
+    }
+
+    @PostMapping(value = "/recommendation/batch", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<ServerSentEvent<Object>> generateBatch(
+            @Valid @RequestBody AIRecommendationBatchRequest request
+    ) {
+        return recommendationService.generateBatch(request.getRequests());
+    }
+
+    // Newest first; pass the X-Next-Cursor header of a page as cursor to get the next one
     @GetMapping("/recommendations")
-    public ResponseEntity<List<AIRecommendationResponse>> getUserRecommendations() {
-        return ResponseEntity.ok(recommendationService.getUserRecommendations());
+    public ResponseEntity<List<AIRecommendationResponse>> getUserRecommendations(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = Constants.DEFAULT_PAGE_SIZE) int size
+    ) {
+        return recommendationService.getUserRecommendations(cursor, size).toResponseEntity();
+    }
+
+    @GetMapping("/recommendations/{id}")
+    public ResponseEntity<AIRecommendationResponse> getRecommendation(@PathVariable Long id) {
+        return ResponseEntity.ok(recommendationService.getRecommendation(id));
     }
 
     @DeleteMapping("/recommendations/{id}")
@@ -0,0 +1,54 @@
+package com.ht.controller;
+
+
+import java.time.YearMonth;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.ht.dto.response.SpendSummary;
+import com.ht.service.AnalyticsService;
+
+import lombok.RequiredArgsConstructor;
+
+@RestController
+@RequiredArgsConstructor
+public class AnalyticsController {
+
+    private final AnalyticsService analyticsService;
+
+    @GetMapping("/api/analytics/categories")
+    public ResponseEntity<List<SpendSummary>> getSpendByCategory() {
+        return ResponseEntity.ok(analyticsService.getSpendByCategory());
+    }
+
+    // from and to are months as yyyy-MM, both inclusive
+    @GetMapping("/api/analytics/months")
+    public ResponseEntity<List<SpendSummary>> getSpendByMonth(
+            @RequestParam(required = false) YearMonth from,
+            @RequestParam(required = false) YearMonth to
+    ) {
+        return ResponseEntity.ok(analyticsService.getSpendByMonth(from, to));
+    }
+
+    @GetMapping("/api/analytics/trip-statuses")
+    public ResponseEntity<List<SpendSummary>> getSpendByTripStatus() {
+        return ResponseEntity.ok(analyticsService.getSpendByTripStatus());
+    }
+
+    @GetMapping("/api/analytics/destinations")
+    public ResponseEntity<List<SpendSummary>> getTopDestinations(@RequestParam(defaultValue = "10") int limit) {
+        return ResponseEntity.ok(analyticsService.getTopDestinations(limit));
+    }
+
+    // Recomputes the rollups from trips and expenses: one user, or all users without userId
+    @PostMapping("/api/admin/analytics/rebuild")
+    public ResponseEntity<Map<String, Integer>> rebuild(@RequestParam(required = false) Long userId) {
+        return ResponseEntity.ok(Map.of("usersRebuilt", analyticsService.rebuild(userId)));
+    }
+}
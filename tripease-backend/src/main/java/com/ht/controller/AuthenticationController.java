@@ -35,4 +35,11 @@ public class AuthenticationController {
     ) {
         return ResponseEntity.ok(authenticationService.login(request));
     }
+
+    // Signs the caller out on every device
+    @PostMapping("/logout")
+    public ResponseEntity<Void> logout() {
+        authenticationService.logout();
+        return ResponseEntity.noContent().build();
+    }
 }
\ No newline at end of file
@@ -1,9 +1,12 @@
 package com.ht.controller;
 
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.List;
 
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -11,11 +14,15 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 import com.ht.dto.request.ExpenseRequest;
+import com.ht.dto.response.ExpenseImportResponse;
 import com.ht.dto.response.ExpenseResponse;
+import com.ht.service.ExpenseImportService;
 import com.ht.service.ExpenseService;
+import com.ht.util.Constants;
 
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
@@ -26,6 +33,7 @@ import lombok.RequiredArgsConstructor;
 public class ExpenseController {
 
     private final ExpenseService expenseService;
+    private final ExpenseImportService expenseImportService;
 
     @PostMapping("/trip/{tripId}")
     public ResponseEntity<ExpenseResponse> addExpense(
@@ -35,9 +43,32 @@ public class ExpenseController {
         return new ResponseEntity<>(expenseService.addExpense(tripId, request), HttpStatus.CREATED);
     }
 
+    // Bulk import: a CSV file with a header row, or one JSON expense per line. Valid rows
+    // are imported in batches, the others are reported back with their line numbers
+    @PostMapping(value = "/trip/{tripId}/import", consumes = Constants.CSV_MEDIA_TYPE)
+    public ResponseEntity<ExpenseImportResponse> importCsv(
+            @PathVariable Long tripId,
+            InputStream body
+    ) throws IOException {
+        return ResponseEntity.ok(expenseImportService.importCsv(tripId, body));
+    }
+
+    @PostMapping(value = "/trip/{tripId}/import", consumes = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<ExpenseImportResponse> importNdjson(
+            @PathVariable Long tripId,
+            InputStream body
+    ) throws IOException {
+        return ResponseEntity.ok(expenseImportService.importNdjson(tripId, body));
+    }
+
+    // Newest first; pass the X-Next-Cursor header of a page as cursor to get the next one
     @GetMapping("/trip/{tripId}")
-    public ResponseEntity<List<ExpenseResponse>> getTripExpenses(@PathVariable Long tripId) {
-        return ResponseEntity.ok(expenseService.getTripExpenses(tripId));
+    public ResponseEntity<List<ExpenseResponse>> getTripExpenses(
+            @PathVariable Long tripId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = Constants.DEFAULT_PAGE_SIZE) int size
+    ) {
+        return expenseService.getTripExpenses(tripId, cursor, size).toResponseEntity();
     }
 
     @DeleteMapping("/{expenseId}")
@@ -0,0 +1,79 @@
+package com.ht.controller;
+
+
+import java.io.IOException;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.ht.dto.request.ExportFormat;
+import com.ht.security.CurrentUserResolver;
+import com.ht.service.ExportService;
+
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Streams full histories as NDJSON (default) or CSV ({@code format=CSV}).
+ * Rows are in id order; if a download is cut off, ask again with
+ * {@code after} set to the last id received. Admins (finance) can export
+ * any user's history under /api/admin.
+ */
+@RestController
+@RequiredArgsConstructor
+public class ExportController {
+
+    private final ExportService exportService;
+    private final CurrentUserResolver currentUserResolver;
+
+    @GetMapping("/api/export/trips")
+    public void exportTrips(
+            @RequestParam(defaultValue = "NDJSON") ExportFormat format,
+            @RequestParam(defaultValue = "0") long after,
+            HttpServletResponse response
+    ) throws IOException {
+        startDownload(response, format, "trips");
+        exportService.exportTrips(currentUserResolver.getCurrentUserId(), after, format, response.getOutputStream());
+    }
+
+    @GetMapping("/api/export/expenses")
+    public void exportExpenses(
+            @RequestParam(defaultValue = "NDJSON") ExportFormat format,
+            @RequestParam(defaultValue = "0") long after,
+            HttpServletResponse response
+    ) throws IOException {
+        startDownload(response, format, "expenses");
+        exportService.exportExpenses(currentUserResolver.getCurrentUserId(), after, format, response.getOutputStream());
+    }
+
+    @GetMapping("/api/admin/users/{userId}/export/trips")
+    public void exportUserTrips(
+            @PathVariable Long userId,
+            @RequestParam(defaultValue = "NDJSON") ExportFormat format,
+            @RequestParam(defaultValue = "0") long after,
+            HttpServletResponse response
+    ) throws IOException {
+        startDownload(response, format, "user-" + userId + "-trips");
+        exportService.exportTrips(userId, after, format, response.getOutputStream());
+    }
+
+    @GetMapping("/api/admin/users/{userId}/export/expenses")
+    public void exportUserExpenses(
+            @PathVariable Long userId,
+            @RequestParam(defaultValue = "NDJSON") ExportFormat format,
+            @RequestParam(defaultValue = "0") long after,
+            HttpServletResponse response
+    ) throws IOException {
+        startDownload(response, format, "user-" + userId + "-expenses");
+        exportService.exportExpenses(userId, after, format, response.getOutputStream());
+    }
+
+    private static void startDownload(HttpServletResponse response, ExportFormat format, String name) {
+        response.setContentType(format.getContentType());
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION,
+                "attachment; filename=\"" + name + "." + format.getExtension() + "\"");
+    }
+}
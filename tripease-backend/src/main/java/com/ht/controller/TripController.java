@@ -5,6 +5,7 @@ import java.util.List;
 
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
@@ -12,13 +13,16 @@ import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 import com.ht.dto.request.TripRequest;
 import com.ht.dto.response.TripResponse;
 import com.ht.service.TripService;
+import com.ht.util.Constants;
 
 import jakarta.validation.Valid;
+import jakarta.validation.groups.Default;
 import lombok.RequiredArgsConstructor;
 
 @RestController
@@ -36,7 +40,7 @@ public class TripController {
     @PutMapping("/{tripId}")
     public ResponseEntity<TripResponse> updateTrip(
             @PathVariable Long tripId,
-            @Valid @RequestBody TripRequest request
+            @Validated({Default.class, TripRequest.OnUpdate.class}) @RequestBody TripRequest request
     ) {
         return ResponseEntity.ok(tripService.updateTrip(tripId, request));
     }
@@ -47,9 +51,13 @@ public class TripController {
         return ResponseEntity.noContent().build();
     }
 
+    // Latest start date first; pass the X-Next-Cursor header of a page as cursor to get the next one
     @GetMapping
-    public ResponseEntity<List<TripResponse>> getAllUserTrips() {
-        return ResponseEntity.ok(tripService.getAllUserTrips());
+    public ResponseEntity<List<TripResponse>> getUserTrips(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = Constants.DEFAULT_PAGE_SIZE) int size
+    ) {
+        return tripService.getUserTrips(cursor, size).toResponseEntity();
     }
 
     @GetMapping("/{tripId}")
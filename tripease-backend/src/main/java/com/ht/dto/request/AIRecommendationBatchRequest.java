@@ -0,0 +1,16 @@
+package com.ht.dto.request;
+
+
+import java.util.List;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+import lombok.Data;
+
+@Data
+public class AIRecommendationBatchRequest {
+    @NotEmpty(message = "At least one destination is required")
+    @Size(max = 10, message = "At most 10 destinations per batch")
+    private List<@Valid AIRecommendationRequest> requests;
+}
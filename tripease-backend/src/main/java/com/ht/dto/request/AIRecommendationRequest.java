@@ -2,6 +2,7 @@ package com.ht.dto.request;
 
 
 import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.Positive;
 import lombok.Data;
 
 @Data
@@ -12,4 +13,8 @@ public class AIRecommendationRequest {
     private String budgetRange;
 
     private String preferences;
+
+    // How long the caller is willing to wait; a faster tier or the fallback is used to stay within it
+    @Positive(message = "Latency budget must be positive")
+    private Long latencyBudgetMs;
 }
\ No newline at end of file
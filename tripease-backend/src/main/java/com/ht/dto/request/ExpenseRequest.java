@@ -1,9 +1,11 @@
 package com.ht.dto.request;
 
 
+import jakarta.validation.constraints.Digits;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Positive;
+import jakarta.validation.constraints.Size;
 import lombok.Data;
 
 import java.math.BigDecimal;
@@ -12,17 +14,20 @@ import java.time.LocalDate;
 @Data
 public class ExpenseRequest {
     @NotBlank(message = "Title is required")
+    @Size(max = 255, message = "Title must be at most 255 characters")
     private String title;
 
     private String description;
 
     @NotNull(message = "Amount is required")
     @Positive(message = "Amount must be positive")
+    @Digits(integer = 8, fraction = 2, message = "Amount must have at most 8 digits and 2 decimals")
     private BigDecimal amount;
 
     @NotNull(message = "Expense date is required")
     private LocalDate expenseDate;
 
     @NotBlank(message = "Category is required")
+    @Size(max = 100, message = "Category must be at most 100 characters")
     private String category;
 }
\ No newline at end of file
@@ -0,0 +1,27 @@
+package com.ht.dto.request;
+
+
+import org.springframework.http.MediaType;
+
+import com.ht.util.Constants;
+
+public enum ExportFormat {
+    NDJSON(MediaType.APPLICATION_NDJSON_VALUE, "ndjson"),
+    CSV(Constants.CSV_MEDIA_TYPE + ";charset=UTF-8", "csv");
+
+    private final String contentType;
+    private final String extension;
+
+    ExportFormat(String contentType, String extension) {
+        this.contentType = contentType;
+        this.extension = extension;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    public String getExtension() {
+        return extension;
+    }
+}
@@ -36,4 +36,11 @@ public class TripRequest {
     private BigDecimal budget;
 
     private TripStatus status;
+
+    // The version the client edited, from TripResponse; ignored on create
+    @NotNull(groups = OnUpdate.class, message = "Version is required")
+    private Long version;
+
+    public interface OnUpdate {
+    }
 }
@@ -1,6 +1,8 @@
 package com.ht.dto.response;
 
 
+import com.ht.entity.ModelTier;
+
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -16,7 +18,10 @@ public class AIRecommendationResponse {
     private Long id;
     private String type;
     private String content;
+    private String contentPreview;
     private String destination;
     private String budgetRange;
+    private ModelTier modelTier;
+    private Long generationMs;
     private LocalDateTime createdAt;
 }
\ No newline at end of file
@@ -0,0 +1,49 @@
+package com.ht.dto.response;
+
+
+import java.util.List;
+import java.util.function.Function;
+
+import org.springframework.http.ResponseEntity;
+
+import com.ht.util.Constants;
+import com.ht.util.KeysetCursor;
+
+/**
+ * One page of a keyset-paginated listing. The items are the response body
+ * and the cursor for the next page, if any, goes in a header, so clients
+ * that only read the body still get a plain array.
+ */
+public record CursorPage<T>(List<T> items, String nextCursor) {
+
+    public static int clampSize(int size) {
+        return Math.max(1, Math.min(size, Constants.MAX_PAGE_SIZE));
+    }
+
+    /**
+     * @param rows up to {@code size + 1} rows in listing order; the extra row
+     *             only signals that another page exists
+     */
+    public static <E, T> CursorPage<T> of(List<E> rows, int size, Function<E, T> mapper,
+                                          Function<E, Object> sortValue, Function<E, Long> id) {
+        List<E> page = rows.size() > size ? rows.subList(0, size) : rows;
+        String nextCursor = null;
+        if (rows.size() > size) {
+            E last = page.get(page.size() - 1);
+            nextCursor = KeysetCursor.encode(sortValue.apply(last), id.apply(last));
+        }
+        return new CursorPage<>(page.stream().map(mapper).toList(), nextCursor);
+    }
+
+    public static <T> CursorPage<T> of(List<T> rows, int size, Function<T, Object> sortValue, Function<T, Long> id) {
+        return of(rows, size, Function.identity(), sortValue, id);
+    }
+
+    public ResponseEntity<List<T>> toResponseEntity() {
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (nextCursor != null) {
+            response.header(Constants.NEXT_CURSOR_HEADER, nextCursor);
+        }
+        return response.body(items);
+    }
+}
@@ -0,0 +1,31 @@
+package com.ht.dto.response;
+
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class ExpenseImportResponse {
+    private int imported;
+    private int rejected;
+    private BigDecimal totalExpenses;
+    // The first rejected rows only; rejected counts all of them
+    private List<RowError> errors;
+
+    @Data
+    @Builder
+    @AllArgsConstructor
+    @NoArgsConstructor
+    public static class RowError {
+        private long line;
+        private String message;
+    }
+}
@@ -13,6 +13,7 @@ import java.util.List;
 @AllArgsConstructor
 public class GeminiResponse {
     private List<Candidate> candidates;
+    private UsageMetadata usageMetadata;
 
     @Data
     @Builder
@@ -40,4 +41,14 @@ public class GeminiResponse {
     public static class Part {
         private String text;
     }
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class UsageMetadata {
+        private Integer promptTokenCount;
+        private Integer candidatesTokenCount;
+        private Integer totalTokenCount;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,23 @@
+package com.ht.dto.response;
+
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class RecommendationJobResponse {
+    private Long id;
+    private String status;
+    private int attempts;
+    private String error;
+    private AIRecommendationResponse recommendation;
+    private LocalDateTime createdAt;
+    private LocalDateTime updatedAt;
+}
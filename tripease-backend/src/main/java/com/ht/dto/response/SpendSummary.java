@@ -0,0 +1,21 @@
+package com.ht.dto.response;
+
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class SpendSummary {
+    // Category, month (yyyy-MM), trip status or destination
+    private String key;
+    private BigDecimal total;
+    // Expenses for categories and months, trips for statuses and destinations
+    private long count;
+}
@@ -28,4 +28,6 @@ public class TripResponse {
     private Long userId;
     private LocalDateTime createdAt;
     private LocalDateTime updatedAt;
+    // Sent back with an update; a trip changed since then is refused with 409
+    private Long version;
 }
\ No newline at end of file
@@ -17,6 +17,8 @@ import java.time.LocalDateTime;
 @Table(name = "ai_recommendations")
 public class AIRecommendation {
 
+    public static final int PREVIEW_LENGTH = 300;
+
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
@@ -24,15 +26,35 @@ public class AIRecommendation {
     @Column(nullable = false)
     private String type;
 
-    @Column(nullable = false, length = 1000)
+    // Full answer, deflated; only loaded when a single recommendation is fetched
+    @Convert(converter = CompressedTextConverter.class)
+    @Column(name = "content_compressed", nullable = false, columnDefinition = "MEDIUMBLOB")
     private String content;
 
+    @Column(name = "content_preview", nullable = false, length = PREVIEW_LENGTH)
+    private String contentPreview;
+
     @Column(name = "destination")
     private String destination;
 
     @Column(name = "budget_range")
     private String budgetRange;
 
+    @Column(length = 1000)
+    private String preferences;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "model_tier", length = 20)
+    private ModelTier modelTier;
+
+    @Column(name = "generation_ms")
+    private Long generationMs;
+
+    // False for answers the similarity index must not hand to other requests
+    @Builder.Default
+    @Column(nullable = false)
+    private boolean reusable = true;
+
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "user_id", nullable = false)
     private User user;
@@ -44,4 +66,21 @@ public class AIRecommendation {
     protected void onCreate() {
         createdAt = LocalDateTime.now();
     }
+
+    /**
+     * Leading part of the content for listings, cut at a word boundary.
+     */
+    public static String previewOf(String content) {
+        if (content == null || content.length() <= PREVIEW_LENGTH) {
+            return content;
+        }
+        int end = content.lastIndexOf(' ', PREVIEW_LENGTH - 1);
+        if (end < PREVIEW_LENGTH / 2) {
+            end = PREVIEW_LENGTH - 1;
+            if (Character.isHighSurrogate(content.charAt(end - 1))) {
+                end--;
+            }
+        }
+        return content.substring(0, end).stripTrailing() + "\u2026";
+    }
 }
@@ -1,6 +1,8 @@
 package com.ht.entity;
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.OnDelete;
+import org.hibernate.annotations.OnDeleteAction;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -36,8 +38,10 @@ public class Expense {
     @Column(nullable = false)
     private String category;
 
+    // Trips are deleted in bulk and their expenses go with them in the database, as in schema.sql
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "trip_id", nullable = false)
+    @OnDelete(action = OnDeleteAction.CASCADE)
     private Trip trip;
 
     @Column(name = "created_at")
@@ -0,0 +1,12 @@
+package com.ht.entity;
+
+
+/**
+ * Which kind of answer a recommendation holds: one of the configured Gemini
+ * tiers, or the canned fallback when no tier could answer.
+ */
+public enum ModelTier {
+    RICH,
+    FAST,
+    FALLBACK
+}
@@ -40,7 +40,8 @@ public class Trip {
     @Column(name = "budget", precision = 10, scale = 2)
     private BigDecimal budget;
 
-    @Column(name = "total_expenses", precision = 10, scale = 2)
+    // Maintained only by atomic delta updates in TripRepository, never by saving the entity
+    @Column(name = "total_expenses", precision = 10, scale = 2, updatable = false)
     private BigDecimal totalExpenses;
 
     @Enumerated(EnumType.STRING)
@@ -53,6 +54,9 @@ public class Trip {
     @OneToMany(mappedBy = "trip", cascade = CascadeType.ALL, orphanRemoval = true)
     private List<Expense> expenses;
 
+    @Version
+    private Long version;
+
     @Column(name = "created_at")
     private LocalDateTime createdAt;
 
@@ -0,0 +1,8 @@
+package com.ht.exception;
+
+
+public class AIUnavailableException extends RuntimeException {
+    public AIUnavailableException(String message) {
+        super(message);
+    }
+}
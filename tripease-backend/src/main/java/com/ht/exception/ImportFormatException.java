@@ -0,0 +1,8 @@
+package com.ht.exception;
+
+
+public class ImportFormatException extends RuntimeException {
+    public ImportFormatException(String message) {
+        super(message);
+    }
+}
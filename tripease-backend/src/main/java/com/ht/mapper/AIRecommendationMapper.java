@@ -5,6 +5,7 @@ import org.springframework.stereotype.Component;
 
 import com.ht.dto.response.AIRecommendationResponse;
 import com.ht.entity.AIRecommendation;
+import com.ht.repository.AIRecommendationSummary;
 
 @Component
 public class AIRecommendationMapper {
@@ -14,9 +15,25 @@ public class AIRecommendationMapper {
                 .id(recommendation.getId())
                 .type(recommendation.getType())
                 .content(recommendation.getContent())
+                .contentPreview(recommendation.getContentPreview())
                 .destination(recommendation.getDestination())
                 .budgetRange(recommendation.getBudgetRange())
+                .modelTier(recommendation.getModelTier())
+                .generationMs(recommendation.getGenerationMs())
                 .createdAt(recommendation.getCreatedAt())
                 .build();
     }
+
+    public AIRecommendationResponse toResponse(AIRecommendationSummary summary) {
+        return AIRecommendationResponse.builder()
+                .id(summary.getId())
+                .type(summary.getType())
+                .contentPreview(summary.getContentPreview())
+                .destination(summary.getDestination())
+                .budgetRange(summary.getBudgetRange())
+                .modelTier(summary.getModelTier())
+                .generationMs(summary.getGenerationMs())
+                .createdAt(summary.getCreatedAt())
+                .build();
+    }
 }
\ No newline at end of file
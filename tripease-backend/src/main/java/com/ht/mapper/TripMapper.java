@@ -41,6 +41,7 @@ public class TripMapper {
                 .userId(trip.getUser().getId())
                 .createdAt(trip.getCreatedAt())
                 .updatedAt(trip.getUpdatedAt())
+                .version(trip.getVersion())
                 .build();
     }
     
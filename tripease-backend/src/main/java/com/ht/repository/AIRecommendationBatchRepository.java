@@ -0,0 +1,74 @@
+package com.ht.repository;
+
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.ht.entity.AIRecommendation;
+import com.ht.entity.CompressedTextConverter;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Multi-row insert for ai_recommendations. Hibernate does not batch inserts of
+ * IDENTITY entities, so saveAll would still issue one round trip per row.
+ */
+@Repository
+@RequiredArgsConstructor
+public class AIRecommendationBatchRepository {
+
+    private static final String INSERT_SQL = "INSERT INTO ai_recommendations "
+            + "(type, content_compressed, content_preview, destination, budget_range, preferences, model_tier, generation_ms, "
+            + "reusable, user_id, created_at) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Transactional
+    public List<AIRecommendation> insertAll(List<AIRecommendation> recommendations) {
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+        jdbcTemplate.batchUpdate(
+                connection -> connection.prepareStatement(INSERT_SQL, Statement.RETURN_GENERATED_KEYS),
+                new BatchPreparedStatementSetter() {
+                    @Override
+                    public void setValues(PreparedStatement ps, int i) throws SQLException {
+                        AIRecommendation recommendation = recommendations.get(i);
+                        ps.setString(1, recommendation.getType());
+                        ps.setBytes(2, CompressedTextConverter.compress(recommendation.getContent()));
+                        ps.setString(3, recommendation.getContentPreview());
+                        ps.setString(4, recommendation.getDestination());
+                        ps.setString(5, recommendation.getBudgetRange());
+                        ps.setString(6, recommendation.getPreferences());
+                        ps.setString(7, recommendation.getModelTier() != null ? recommendation.getModelTier().name() : null);
+                        ps.setObject(8, recommendation.getGenerationMs(), Types.BIGINT);
+                        ps.setBoolean(9, recommendation.isReusable());
+                        ps.setLong(10, recommendation.getUser().getId());
+                        ps.setTimestamp(11, Timestamp.valueOf(recommendation.getCreatedAt()));
+                    }
+
+                    @Override
+                    public int getBatchSize() {
+                        return recommendations.size();
+                    }
+                },
+                keyHolder);
+
+        List<Map<String, Object>> keys = keyHolder.getKeyList();
+        for (int i = 0; i < recommendations.size() && i < keys.size(); i++) {
+            Number id = (Number) keys.get(i).values().iterator().next();
+            recommendations.get(i).setId(id.longValue());
+        }
+        return recommendations;
+    }
+}
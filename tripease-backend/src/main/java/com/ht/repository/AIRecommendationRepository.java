@@ -1,14 +1,45 @@
 package com.ht.repository;
 
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import com.ht.entity.AIRecommendation;
 
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface AIRecommendationRepository extends JpaRepository<AIRecommendation, Long> {
-    List<AIRecommendation> findByUserId(Long userId);
+    String SUMMARY_COLUMNS = "SELECT r.id AS id, r.type AS type, r.contentPreview AS contentPreview, "
+            + "r.destination AS destination, r.budgetRange AS budgetRange, r.modelTier AS modelTier, "
+            + "r.generationMs AS generationMs, r.createdAt AS createdAt FROM AIRecommendation r ";
+
+    // Listing columns only: the compressed content is never read for lists. Keyset pages on
+    // (created_at, id), newest first; served by idx_recommendations_user_created
+    @Query(SUMMARY_COLUMNS + "WHERE r.user.id = :userId ORDER BY r.createdAt DESC, r.id DESC")
+    List<AIRecommendationSummary> findFirstSummaryPageByUserId(@Param("userId") Long userId, Pageable pageable);
+
+    @Query(SUMMARY_COLUMNS + "WHERE r.user.id = :userId "
+            + "AND (r.createdAt < :createdAt OR (r.createdAt = :createdAt AND r.id < :id)) "
+            + "ORDER BY r.createdAt DESC, r.id DESC")
+    List<AIRecommendationSummary> findSummaryPageByUserIdAfter(@Param("userId") Long userId,
+                                                               @Param("createdAt") LocalDateTime createdAt,
+                                                               @Param("id") Long id, Pageable pageable);
+
+    Optional<AIRecommendation> findByIdAndUserId(Long id, Long userId);
+
+    @Query("SELECT new com.ht.repository.DestinationDemand(r.destination, r.budgetRange, COUNT(r)) FROM AIRecommendation r "
+            + "WHERE r.createdAt >= :since AND r.destination IS NOT NULL "
+            + "GROUP BY r.destination, r.budgetRange ORDER BY COUNT(r) DESC")
+    List<DestinationDemand> findPopularDestinations(@Param("since") LocalDateTime since, Pageable pageable);
+
+    @Modifying
+    @Query("DELETE FROM AIRecommendation r WHERE r.id = :id AND r.user.id = :userId")
+    int deleteByIdAndUserId(@Param("id") Long id, @Param("userId") Long userId);
 }
@@ -0,0 +1,27 @@
+package com.ht.repository;
+
+
+import java.time.LocalDateTime;
+
+import com.ht.entity.ModelTier;
+
+/**
+ * Columns of an AI recommendation shown in listings, without its content.
+ */
+public interface AIRecommendationSummary {
+    Long getId();
+
+    String getType();
+
+    String getContentPreview();
+
+    String getDestination();
+
+    String getBudgetRange();
+
+    ModelTier getModelTier();
+
+    Long getGenerationMs();
+
+    LocalDateTime getCreatedAt();
+}
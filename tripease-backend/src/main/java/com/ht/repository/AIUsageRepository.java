@@ -0,0 +1,45 @@
+package com.ht.repository;
+
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.List;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Daily AI usage per user. Rows are only ever incremented, so deltas from
+ * several nodes can be applied without reading first.
+ */
+@Repository
+@RequiredArgsConstructor
+public class AIUsageRepository {
+
+    private static final String UPSERT_SQL = "INSERT INTO ai_usage (user_id, usage_date, requests, tokens) "
+            + "VALUES (?, ?, ?, ?) "
+            + "ON DUPLICATE KEY UPDATE requests = requests + VALUES(requests), tokens = tokens + VALUES(tokens)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public long findTokens(Long userId, LocalDate day) {
+        List<Long> tokens = jdbcTemplate.queryForList(
+                "SELECT tokens FROM ai_usage WHERE user_id = ? AND usage_date = ?",
+                Long.class, userId, Date.valueOf(day));
+        return tokens.isEmpty() ? 0 : tokens.get(0);
+    }
+
+    public void addAll(List<UsageDelta> deltas) {
+        jdbcTemplate.batchUpdate(UPSERT_SQL, deltas, deltas.size(), (ps, delta) -> {
+            ps.setLong(1, delta.userId());
+            ps.setDate(2, Date.valueOf(delta.day()));
+            ps.setLong(3, delta.requests());
+            ps.setLong(4, delta.tokens());
+        });
+    }
+
+    public record UsageDelta(Long userId, LocalDate day, long requests, long tokens) {
+    }
+}
@@ -0,0 +1,12 @@
+package com.ht.repository;
+
+
+/**
+ * How often a destination (and budget, when known) was asked for.
+ */
+public record DestinationDemand(String destination, String budgetRange, Long requests) {
+
+    public DestinationDemand(String destination, Long requests) {
+        this(destination, null, requests);
+    }
+}
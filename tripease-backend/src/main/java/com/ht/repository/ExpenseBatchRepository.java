@@ -0,0 +1,78 @@
+package com.ht.repository;
+
+
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.ht.dto.request.ExpenseRequest;
+import com.ht.exception.ResourceNotFoundException;
+import com.ht.util.MinorUnits;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Batched insert for expenses. Expense ids are IDENTITY, which stops Hibernate
+ * from batching inserts, so bulk imports write through JDBC and never hold
+ * the rows as entities.
+ */
+@Repository
+@RequiredArgsConstructor
+public class ExpenseBatchRepository {
+
+    private static final String INSERT_SQL = "INSERT INTO expenses "
+            + "(title, description, amount, expense_date, category, trip_id, created_at, updated_at) "
+            + "VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private static final String ADD_TO_TOTAL_SQL = "UPDATE trips SET total_expenses = total_expenses + ? WHERE id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final SpendRollupRepository spendRollupRepository;
+
+    /**
+     * Inserts one batch and adds its sum to the trip total in a single update,
+     * made first so the trip row is locked as in {@code ExpenseService}. The
+     * spend rollups take one upsert per category and month in the batch.
+     */
+    @Transactional
+    public void insertAll(Long userId, Long tripId, List<ExpenseRequest> expenses) {
+        RollupDelta delta = new RollupDelta();
+        for (ExpenseRequest expense : expenses) {
+            delta.add(expense.getCategory(), expense.getExpenseDate(), expense.getAmount(), 1);
+        }
+        // The trip can be deleted between batches of an import
+        if (jdbcTemplate.update(ADD_TO_TOTAL_SQL, MinorUnits.toAmount(delta.getTotalMinor()), tripId) == 0) {
+            throw new ResourceNotFoundException("Trip not found with id: " + tripId);
+        }
+        spendRollupRepository.addExpenses(userId, tripId, delta);
+
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        jdbcTemplate.batchUpdate(INSERT_SQL, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                ExpenseRequest expense = expenses.get(i);
+                ps.setString(1, expense.getTitle());
+                ps.setString(2, expense.getDescription());
+                ps.setBigDecimal(3, expense.getAmount());
+                ps.setDate(4, Date.valueOf(expense.getExpenseDate()));
+                ps.setString(5, expense.getCategory());
+                ps.setLong(6, tripId);
+                ps.setTimestamp(7, now);
+                ps.setTimestamp(8, now);
+            }
+
+            @Override
+            public int getBatchSize() {
+                return expenses.size();
+            }
+        });
+    }
+}
@@ -1,19 +1,57 @@
 package com.ht.repository;
 
 
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import com.ht.dto.response.ExpenseResponse;
 import com.ht.entity.Expense;
+import com.ht.util.Constants;
+
+import jakarta.persistence.QueryHint;
 
 import java.math.BigDecimal;
+import java.time.LocalDate;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface ExpenseRepository extends JpaRepository<Expense, Long> {
-    List<Expense> findByTripId(Long tripId);
+    // In ExpenseResponse constructor order; the trip id comes from the foreign key, not the trip
+    String RESPONSE_COLUMNS = "SELECT new com.ht.dto.response.ExpenseResponse(e.id, e.title, e.description, "
+            + "e.amount, e.expenseDate, e.category, e.trip.id, e.createdAt, e.updatedAt) FROM Expense e ";
+
+    // Keyset pages on (expense_date, id), newest first; served by idx_expenses_trip_date
+    @Query(RESPONSE_COLUMNS + "WHERE e.trip.id = :tripId ORDER BY e.expenseDate DESC, e.id DESC")
+    List<ExpenseResponse> findFirstPageByTripId(@Param("tripId") Long tripId, Pageable pageable);
+
+    @Query(RESPONSE_COLUMNS + "WHERE e.trip.id = :tripId "
+            + "AND (e.expenseDate < :expenseDate OR (e.expenseDate = :expenseDate AND e.id < :id)) "
+            + "ORDER BY e.expenseDate DESC, e.id DESC")
+    List<ExpenseResponse> findPageByTripIdAfter(@Param("tripId") Long tripId, @Param("expenseDate") LocalDate expenseDate,
+                                                @Param("id") Long id, Pageable pageable);
+
+    // All of a user's expenses in id order, so an interrupted export resumes after the last id it wrote
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = Constants.EXPORT_FETCH_SIZE),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query(RESPONSE_COLUMNS + "WHERE e.trip.user.id = :userId AND e.id > :afterId ORDER BY e.id")
+    Stream<ExpenseResponse> streamForExport(@Param("userId") Long userId, @Param("afterId") Long afterId);
+
+    @Query("SELECT e FROM Expense e WHERE e.id = :id AND e.trip.user.id = :userId")
+    Optional<Expense> findByIdAndTripUserId(@Param("id") Long id, @Param("userId") Long userId);
+
+    @Modifying
+    @Query("DELETE FROM Expense e WHERE e.id = :id AND e.trip.id = :tripId")
+    int deleteByIdAndTripId(@Param("id") Long id, @Param("tripId") Long tripId);
     
     @Query("SELECT COALESCE(SUM(e.amount), 0) FROM Expense e WHERE e.trip.id = :tripId")
     BigDecimal sumExpensesByTripId(@Param("tripId") Long tripId);
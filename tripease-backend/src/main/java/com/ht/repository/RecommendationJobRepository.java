@@ -0,0 +1,37 @@
+package com.ht.repository;
+
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import com.ht.entity.RecommendationJob;
+
+import jakarta.persistence.LockModeType;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface RecommendationJobRepository extends JpaRepository<RecommendationJob, Long> {
+    Optional<RecommendationJob> findByIdAndUserId(Long id, Long userId);
+
+    // SKIP LOCKED lets every node claim a disjoint batch without waiting on each other
+    @Query(value = "SELECT * FROM recommendation_jobs WHERE status = 'PENDING' AND next_attempt_at <= :now " +
+            "ORDER BY next_attempt_at, id LIMIT :limit FOR UPDATE SKIP LOCKED", nativeQuery = true)
+    List<RecommendationJob> lockClaimable(@Param("now") LocalDateTime now, @Param("limit") int limit);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT j FROM RecommendationJob j WHERE j.id = :id")
+    Optional<RecommendationJob> findByIdForUpdate(@Param("id") Long id);
+
+    @Modifying
+    @Query("UPDATE RecommendationJob j SET j.status = com.ht.entity.RecommendationJob.JobStatus.PENDING, " +
+            "j.lockedBy = null, j.lockedAt = null, j.nextAttemptAt = :now, j.updatedAt = :now " +
+            "WHERE j.status = com.ht.entity.RecommendationJob.JobStatus.RUNNING AND j.lockedAt < :cutoff")
+    int releaseExpiredLeases(@Param("cutoff") LocalDateTime cutoff, @Param("now") LocalDateTime now);
+}
@@ -0,0 +1,55 @@
+package com.ht.repository;
+
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.TreeMap;
+
+import com.ht.util.MinorUnits;
+
+/**
+ * Changes to a user's spend rollups from one write, summed in memory so a
+ * batch of expenses costs one upsert per category and month. Keys are kept
+ * sorted so concurrent writers lock rollup rows in the same order.
+ */
+public class RollupDelta {
+
+    private final Map<String, long[]> categories = new TreeMap<>();
+    private final Map<LocalDate, long[]> months = new TreeMap<>();
+    private long totalMinor;
+
+    // count is 1 for an added expense and -1 for a removed one; the amount is signed to match
+    public RollupDelta add(String category, LocalDate expenseDate, BigDecimal amount, int count) {
+        return add(category, expenseDate, MinorUnits.of(amount) * Integer.signum(count), count);
+    }
+
+    public RollupDelta add(String category, LocalDate expenseDate, long minor, int count) {
+        accumulate(categories.computeIfAbsent(category, key -> new long[2]), minor, count);
+        accumulate(months.computeIfAbsent(expenseDate.withDayOfMonth(1), key -> new long[2]), minor, count);
+        totalMinor += minor;
+        return this;
+    }
+
+    private static void accumulate(long[] sums, long minor, int count) {
+        sums[0] += minor;
+        sums[1] += count;
+    }
+
+    public boolean isEmpty() {
+        return categories.isEmpty();
+    }
+
+    // Values are {total minor units, expense count}
+    public Map<String, long[]> getCategories() {
+        return categories;
+    }
+
+    public Map<LocalDate, long[]> getMonths() {
+        return months;
+    }
+
+    public long getTotalMinor() {
+        return totalMinor;
+    }
+}
@@ -0,0 +1,208 @@
+package com.ht.repository;
+
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.ht.dto.response.SpendSummary;
+import com.ht.entity.Trip.TripStatus;
+import com.ht.util.MinorUnits;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Per-user spend rollups by category, month, trip status and destination, in
+ * minor units. Writers add deltas in the transaction of the expense or trip
+ * change, after locking the trip row, so reads are a handful of rows however
+ * long the history is.
+ */
+@Repository
+@RequiredArgsConstructor
+public class SpendRollupRepository {
+
+    private static final String CATEGORY_UPSERT_SQL = "INSERT INTO expense_category_rollup "
+            + "(user_id, category, total_minor, expense_count) VALUES (?, ?, ?, ?) "
+            + "ON DUPLICATE KEY UPDATE total_minor = total_minor + VALUES(total_minor), "
+            + "expense_count = expense_count + VALUES(expense_count)";
+
+    private static final String MONTH_UPSERT_SQL = "INSERT INTO expense_month_rollup "
+            + "(user_id, month, total_minor, expense_count) VALUES (?, ?, ?, ?) "
+            + "ON DUPLICATE KEY UPDATE total_minor = total_minor + VALUES(total_minor), "
+            + "expense_count = expense_count + VALUES(expense_count)";
+
+    private static final String STATUS_UPSERT_SQL = "INSERT INTO trip_status_rollup "
+            + "(user_id, status, trip_count, total_minor) VALUES (?, ?, ?, ?) "
+            + "ON DUPLICATE KEY UPDATE trip_count = trip_count + VALUES(trip_count), "
+            + "total_minor = total_minor + VALUES(total_minor)";
+
+    private static final String DESTINATION_UPSERT_SQL = "INSERT INTO destination_rollup "
+            + "(user_id, destination, trip_count, total_minor) VALUES (?, ?, ?, ?) "
+            + "ON DUPLICATE KEY UPDATE trip_count = trip_count + VALUES(trip_count), "
+            + "total_minor = total_minor + VALUES(total_minor)";
+
+    private static final String[] REBUILD_SQL = {
+            "DELETE FROM expense_category_rollup WHERE user_id = ?",
+            "INSERT INTO expense_category_rollup (user_id, category, total_minor, expense_count) "
+                    + "SELECT t.user_id, e.category, SUM(ROUND(e.amount * 100)), COUNT(*) "
+                    + "FROM expenses e JOIN trips t ON t.id = e.trip_id WHERE t.user_id = ? "
+                    + "GROUP BY t.user_id, e.category",
+            // Months are filled in by rebuildMonths
+            "DELETE FROM expense_month_rollup WHERE user_id = ?",
+            "DELETE FROM trip_status_rollup WHERE user_id = ?",
+            "INSERT INTO trip_status_rollup (user_id, status, trip_count, total_minor) "
+                    + "SELECT t.user_id, t.status, COUNT(DISTINCT t.id), COALESCE(SUM(ROUND(e.amount * 100)), 0) "
+                    + "FROM trips t LEFT JOIN expenses e ON e.trip_id = t.id WHERE t.user_id = ? "
+                    + "GROUP BY t.user_id, t.status",
+            "DELETE FROM destination_rollup WHERE user_id = ?",
+            "INSERT INTO destination_rollup (user_id, destination, trip_count, total_minor) "
+                    + "SELECT t.user_id, t.destination, COUNT(DISTINCT t.id), COALESCE(SUM(ROUND(e.amount * 100)), 0) "
+                    + "FROM trips t LEFT JOIN expenses e ON e.trip_id = t.id WHERE t.user_id = ? "
+                    + "GROUP BY t.user_id, t.destination"
+    };
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Adds expenses written to one trip: to their categories and months, and
+     * their total to the trip's status and destination.
+     */
+    public void addExpenses(Long userId, Long tripId, RollupDelta delta) {
+        if (delta.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(CATEGORY_UPSERT_SQL, List.copyOf(delta.getCategories().entrySet()),
+                delta.getCategories().size(), (ps, category) -> {
+                    ps.setLong(1, userId);
+                    ps.setString(2, category.getKey());
+                    ps.setLong(3, category.getValue()[0]);
+                    ps.setLong(4, category.getValue()[1]);
+                });
+        jdbcTemplate.batchUpdate(MONTH_UPSERT_SQL, List.copyOf(delta.getMonths().entrySet()),
+                delta.getMonths().size(), (ps, month) -> {
+                    ps.setLong(1, userId);
+                    ps.setDate(2, Date.valueOf(month.getKey()));
+                    ps.setLong(3, month.getValue()[0]);
+                    ps.setLong(4, month.getValue()[1]);
+                });
+        if (delta.getTotalMinor() != 0) {
+            // Read from the trip row the writer has already locked
+            jdbcTemplate.query("SELECT status, destination FROM trips WHERE id = ?", rs -> {
+                addTrips(userId, TripStatus.valueOf(rs.getString(1)), rs.getString(2), 0, delta.getTotalMinor());
+            }, tripId);
+        }
+    }
+
+    /**
+     * Counts trips in (or, with negative deltas, out of) a status and destination,
+     * with the spend they carry.
+     */
+    public void addTrips(Long userId, TripStatus status, String destination, int trips, long totalMinor) {
+        jdbcTemplate.update(STATUS_UPSERT_SQL, userId, status.name(), trips, totalMinor);
+        jdbcTemplate.update(DESTINATION_UPSERT_SQL, userId, destination, trips, totalMinor);
+    }
+
+    /**
+     * Moves one trip and its spend between statuses and destinations, touching
+     * the rows of each table in key order like every other writer.
+     */
+    public void moveTrip(Long userId, TripStatus fromStatus, TripStatus toStatus,
+                         String fromDestination, String toDestination, long totalMinor) {
+        move(STATUS_UPSERT_SQL, userId, fromStatus.name(), toStatus.name(), totalMinor);
+        move(DESTINATION_UPSERT_SQL, userId, fromDestination, toDestination, totalMinor);
+    }
+
+    private void move(String sql, Long userId, String from, String to, long totalMinor) {
+        if (from.equals(to)) {
+            return;
+        }
+        Map<String, Integer> moves = new TreeMap<>(Map.of(from, -1, to, 1));
+        moves.forEach((key, trips) -> jdbcTemplate.update(sql, userId, key, trips, trips * totalMinor));
+    }
+
+    // Summed from the expense rows, which is what the rollups hold, not from trips.total_expenses
+    public long sumTripExpenses(Long tripId) {
+        Long sum = jdbcTemplate.queryForObject(
+                "SELECT COALESCE(SUM(ROUND(amount * 100)), 0) FROM expenses WHERE trip_id = ?", Long.class, tripId);
+        return sum != null ? sum : 0;
+    }
+
+    // The expenses a trip contributes, to take back out when it is deleted
+    public RollupDelta findTripExpenses(Long tripId) {
+        RollupDelta delta = new RollupDelta();
+        jdbcTemplate.query("SELECT category, expense_date, amount FROM expenses WHERE trip_id = ?",
+                rs -> {
+                    delta.add(rs.getString(1), rs.getDate(2).toLocalDate(), rs.getBigDecimal(3), -1);
+                }, tripId);
+        return delta;
+    }
+
+    public List<SpendSummary> findByCategory(Long userId) {
+        return jdbcTemplate.query("SELECT category, total_minor, expense_count FROM expense_category_rollup "
+                + "WHERE user_id = ? AND expense_count > 0 ORDER BY total_minor DESC", SUMMARY_MAPPER, userId);
+    }
+
+    public List<SpendSummary> findByMonth(Long userId, YearMonth from, YearMonth to) {
+        return jdbcTemplate.query("SELECT month, total_minor, expense_count FROM expense_month_rollup "
+                        + "WHERE user_id = ? AND month BETWEEN ? AND ? AND expense_count > 0 ORDER BY month",
+                (rs, rowNum) -> new SpendSummary(YearMonth.from(rs.getDate(1).toLocalDate()).toString(),
+                        MinorUnits.toAmount(rs.getLong(2)), rs.getLong(3)),
+                userId, Date.valueOf(from.atDay(1)), Date.valueOf(to.atDay(1)));
+    }
+
+    public List<SpendSummary> findByTripStatus(Long userId) {
+        return jdbcTemplate.query("SELECT status, total_minor, trip_count FROM trip_status_rollup "
+                + "WHERE user_id = ? AND trip_count > 0 ORDER BY status", SUMMARY_MAPPER, userId);
+    }
+
+    public List<SpendSummary> findTopDestinations(Long userId, int limit) {
+        return jdbcTemplate.query("SELECT destination, total_minor, trip_count FROM destination_rollup "
+                + "WHERE user_id = ? AND trip_count > 0 ORDER BY total_minor DESC, trip_count DESC LIMIT ?",
+                SUMMARY_MAPPER, userId, limit);
+    }
+
+    /**
+     * Recomputes one user's rollups from their trips and expenses. The user's
+     * trips are locked first, as expense and trip writers do, so no delta can
+     * slip in between the recount and the commit.
+     */
+    @Transactional
+    public void rebuild(Long userId) {
+        jdbcTemplate.queryForList("SELECT id FROM trips WHERE user_id = ? FOR UPDATE", Long.class, userId);
+        for (String sql : REBUILD_SQL) {
+            jdbcTemplate.update(sql, userId);
+        }
+        rebuildMonths(userId);
+    }
+
+    // Grouped by year and month rather than with a date-formatting function, which differs between databases
+    private void rebuildMonths(Long userId) {
+        List<Object[]> months = new ArrayList<>();
+        jdbcTemplate.query("SELECT EXTRACT(YEAR FROM e.expense_date), EXTRACT(MONTH FROM e.expense_date), "
+                        + "SUM(ROUND(e.amount * 100)), COUNT(*) "
+                        + "FROM expenses e JOIN trips t ON t.id = e.trip_id WHERE t.user_id = ? "
+                        + "GROUP BY EXTRACT(YEAR FROM e.expense_date), EXTRACT(MONTH FROM e.expense_date)",
+                rs -> {
+                    months.add(new Object[] {userId, Date.valueOf(LocalDate.of(rs.getInt(1), rs.getInt(2), 1)),
+                            rs.getLong(3), rs.getLong(4)});
+                }, userId);
+        jdbcTemplate.batchUpdate(MONTH_UPSERT_SQL, months);
+    }
+
+    public List<Long> findUserIdsAfter(long afterId, int limit) {
+        return jdbcTemplate.queryForList("SELECT id FROM users WHERE id > ? ORDER BY id LIMIT ?",
+                Long.class, afterId, limit);
+    }
+
+    private static final RowMapper<SpendSummary> SUMMARY_MAPPER = (rs, rowNum) ->
+            new SpendSummary(rs.getString(1), MinorUnits.toAmount(rs.getLong(2)), rs.getLong(3));
+}
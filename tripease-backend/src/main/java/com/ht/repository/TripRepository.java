@@ -1,23 +1,88 @@
 package com.ht.repository;
 
 
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import com.ht.dto.response.TripResponse;
 import com.ht.entity.Trip;
+import com.ht.util.Constants;
 
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+
+import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface TripRepository extends JpaRepository<Trip, Long> {
-    List<Trip> findByUserId(Long userId);
+    // Read paths select straight into the response, in TripResponse constructor order,
+    // so no entity is managed or snapshotted and the user is never loaded
+    String RESPONSE_COLUMNS = "SELECT new com.ht.dto.response.TripResponse(t.id, t.title, t.description, "
+            + "t.destination, t.startDate, t.endDate, t.budget, t.totalExpenses, t.status, t.user.id, "
+            + "t.createdAt, t.updatedAt, t.version) FROM Trip t ";
+
+    // Keyset pages on (start_date, id), newest first; served by idx_trips_user_start
+    @Query(RESPONSE_COLUMNS + "WHERE t.user.id = :userId ORDER BY t.startDate DESC, t.id DESC")
+    List<TripResponse> findFirstPageByUserId(@Param("userId") Long userId, Pageable pageable);
+
+    @Query(RESPONSE_COLUMNS + "WHERE t.user.id = :userId "
+            + "AND (t.startDate < :startDate OR (t.startDate = :startDate AND t.id < :id)) "
+            + "ORDER BY t.startDate DESC, t.id DESC")
+    List<TripResponse> findPageByUserIdAfter(@Param("userId") Long userId, @Param("startDate") LocalDate startDate,
+                                             @Param("id") Long id, Pageable pageable);
+
+    @Query(RESPONSE_COLUMNS + "WHERE t.id = :id AND t.user.id = :userId")
+    Optional<TripResponse> findResponseByIdAndUserId(@Param("id") Long id, @Param("userId") Long userId);
+
+    // In id order, so an interrupted export resumes after the last id it wrote
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = Constants.EXPORT_FETCH_SIZE),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query(RESPONSE_COLUMNS + "WHERE t.user.id = :userId AND t.id > :afterId ORDER BY t.id")
+    Stream<TripResponse> streamForExport(@Param("userId") Long userId, @Param("afterId") Long afterId);
+
+    boolean existsByIdAndUserId(Long id, Long userId);
+
+    // One statement, so concurrent expense writes never read and overwrite each other's total
+    @Modifying
+    @Query("UPDATE Trip t SET t.totalExpenses = t.totalExpenses + :delta WHERE t.id = :id AND t.user.id = :userId")
+    int addToTotalExpenses(@Param("id") Long id, @Param("userId") Long userId, @Param("delta") BigDecimal delta);
+
+    // Trip writers that move rollups take the row lock expense writers queue on
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT t FROM Trip t WHERE t.id = :id AND t.user.id = :userId")
+    Optional<Trip> findForUpdate(@Param("id") Long id, @Param("userId") Long userId);
+
+    // Bypasses cascades and callbacks; the expenses go through the foreign key (see TripService.deleteTrip)
+    @Modifying
+    @Query("DELETE FROM Trip t WHERE t.id = :id AND t.user.id = :userId")
+    int deleteByIdAndUserId(@Param("id") Long id, @Param("userId") Long userId);
     
-    @Query("SELECT t FROM Trip t WHERE t.user.id = :userId AND t.startDate > :currentDate ORDER BY t.startDate ASC")
-    List<Trip> findUpcomingTripsByUser(@Param("userId") Long userId, @Param("currentDate") LocalDate currentDate);
+    @Query(RESPONSE_COLUMNS + "WHERE t.user.id = :userId AND t.startDate > :currentDate ORDER BY t.startDate ASC")
+    List<TripResponse> findUpcomingTripsByUser(@Param("userId") Long userId, @Param("currentDate") LocalDate currentDate);
     
     @Query("SELECT COUNT(t) FROM Trip t WHERE t.user.id = :userId")
     Long countTripsByUserId(@Param("userId") Long userId);
+
+    @Query("SELECT t.totalExpenses FROM Trip t WHERE t.id = :id")
+    BigDecimal findTotalExpensesById(@Param("id") Long id);
+
+    @Query("SELECT COALESCE(SUM(t.budget), 0) FROM Trip t WHERE t.user.id = :userId")
+    BigDecimal sumBudgetsByUserId(@Param("userId") Long userId);
+
+    @Query("SELECT new com.ht.repository.DestinationDemand(t.destination, COUNT(t)) FROM Trip t "
+            + "WHERE t.endDate >= :from GROUP BY t.destination ORDER BY COUNT(t) DESC")
+    List<DestinationDemand> findPopularDestinations(@Param("from") LocalDate from, Pageable pageable);
 }
@@ -0,0 +1,63 @@
+package com.ht.repository;
+
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Compares stored trip totals with the sum of their expenses, and repairs them.
+ */
+@Repository
+@RequiredArgsConstructor
+public class TripTotalsRepository {
+
+    // The derived table bounds each chunk to the next trips by id before any expense is summed
+    private static final String CHUNK_SQL = "SELECT t.id, t.total_expenses, COALESCE(SUM(e.amount), 0) "
+            + "FROM (SELECT id, total_expenses FROM trips WHERE id > ? ORDER BY id LIMIT ?) t "
+            + "LEFT JOIN expenses e ON e.trip_id = t.id "
+            + "GROUP BY t.id, t.total_expenses ORDER BY t.id";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public List<TripTotal> findTotalsAfter(long afterId, int limit) {
+        return jdbcTemplate.query(CHUNK_SQL,
+                (rs, rowNum) -> new TripTotal(rs.getLong(1), rs.getBigDecimal(2), rs.getBigDecimal(3)),
+                afterId, limit);
+    }
+
+    /**
+     * Recomputes one trip's total if it is wrong. The trip row is locked before
+     * its expenses are summed, as expense writers lock it before writing, so no
+     * write can land between the sum and the update.
+     *
+     * @return whether the stored total was changed
+     */
+    @Transactional
+    public boolean repair(long tripId) {
+        List<BigDecimal> stored = jdbcTemplate.queryForList(
+                "SELECT total_expenses FROM trips WHERE id = ? FOR UPDATE", BigDecimal.class, tripId);
+        if (stored.isEmpty()) {
+            return false;
+        }
+        BigDecimal actual = jdbcTemplate.queryForObject(
+                "SELECT COALESCE(SUM(amount), 0) FROM expenses WHERE trip_id = ?", BigDecimal.class, tripId);
+        if (stored.get(0) != null && stored.get(0).compareTo(actual) == 0) {
+            return false;
+        }
+        jdbcTemplate.update("UPDATE trips SET total_expenses = ? WHERE id = ?", actual, tripId);
+        return true;
+    }
+
+    public record TripTotal(long tripId, BigDecimal stored, BigDecimal actual) {
+
+        public boolean matches() {
+            return stored != null && stored.compareTo(actual) == 0;
+        }
+    }
+}
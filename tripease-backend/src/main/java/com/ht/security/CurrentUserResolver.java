@@ -0,0 +1,40 @@
+package com.ht.security;
+
+
+import com.ht.entity.User;
+import com.ht.exception.UnauthorizedException;
+import com.ht.repository.UserRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+
+/**
+ * Resolves the caller of the current request from the principal set by
+ * {@link JwtAuthenticationFilter}, without touching the database.
+ */
+@Component
+@RequiredArgsConstructor
+public class CurrentUserResolver {
+
+    private final UserRepository userRepository;
+
+    public AuthenticatedUser getCurrentUser() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null || !(authentication.getPrincipal() instanceof AuthenticatedUser principal)) {
+            throw new UnauthorizedException("User not found");
+        }
+        return principal;
+    }
+
+    public Long getCurrentUserId() {
+        return getCurrentUser().getId();
+    }
+
+    /**
+     * Uninitialized proxy for associating new entities with the caller.
+     */
+    public User getCurrentUserReference() {
+        return userRepository.getReferenceById(getCurrentUserId());
+    }
+}
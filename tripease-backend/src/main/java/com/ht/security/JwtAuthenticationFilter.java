@@ -1,6 +1,8 @@
 package com.ht.security;
 
 
+import com.ht.entity.User;
+import io.jsonwebtoken.Claims;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -23,6 +25,7 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
     private final JwtUtil jwtUtil;
     private final UserDetailsService userDetailsService;
+    private final TokenVersionRegistry tokenVersionRegistry;
 
     @Override
     protected void doFilterInternal(
@@ -32,6 +35,7 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
     ) throws ServletException, IOException {
         final String authHeader = request.getHeader("Authorization");
         final String jwt;
+        final Claims claims;
         final String userEmail;
 
         if (authHeader == null || !authHeader.startsWith("Bearer ")) {
@@ -40,16 +44,17 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         }
 
         jwt = authHeader.substring(7);
-        userEmail = jwtUtil.extractUsername(jwt);
+        claims = jwtUtil.extractAllClaims(jwt);
+        userEmail = claims.getSubject();
 
         if (userEmail != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-            UserDetails userDetails = this.userDetailsService.loadUserByUsername(userEmail);
+            AuthenticatedUser principal = resolvePrincipal(claims, userEmail);
 
-            if (jwtUtil.isTokenValid(jwt, userDetails)) {
+            if (principal != null) {
                 UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
-                        userDetails,
+                        principal,
                         null,
-                        userDetails.getAuthorities()
+                        principal.getAuthorities()
                 );
                 authToken.setDetails(
                         new WebAuthenticationDetailsSource().buildDetails(request)
@@ -59,4 +64,22 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         }
         filterChain.doFilter(request, response);
     }
+
+    private AuthenticatedUser resolvePrincipal(Claims claims, String userEmail) {
+        AuthenticatedUser principal = jwtUtil.toPrincipal(claims);
+        if (principal != null) {
+            return tokenVersionRegistry.isCurrent(principal.getId(), principal.getTokenVersion()) ? principal : null;
+        }
+
+        // Tokens issued before the identity claims were added still need the user row
+        UserDetails userDetails = this.userDetailsService.loadUserByUsername(userEmail);
+        if (!jwtUtil.isTokenValid(claims, userDetails) || !(userDetails instanceof User user)) {
+            return null;
+        }
+        // They predate token versions, so any logout since revokes them
+        if (user.getTokenVersion() != 0) {
+            return null;
+        }
+        return AuthenticatedUser.from(user);
+    }
 }
\ No newline at end of file
@@ -0,0 +1,71 @@
+package com.ht.security;
+
+
+import com.ht.repository.UserRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Remembers each user's current token version so that tokens can be checked
+ * against it without a database round trip. The database is read only when a
+ * user is unknown, the remembered version is older than the refresh interval,
+ * or the token carries a different version. Versions are bumped on logout.
+ * A remembered version only ever moves up, so a read that raced a logout
+ * cannot put the revoked version back.
+ */
+@Component
+public class TokenVersionRegistry {
+
+    private final UserRepository userRepository;
+    private final long refreshMillis;
+    private final Map<Long, KnownVersion> versions = new ConcurrentHashMap<>();
+
+    public TokenVersionRegistry(
+            UserRepository userRepository,
+            @Value("${jwt.token-version.refresh-ms:300000}") long refreshMillis
+    ) {
+        this.userRepository = userRepository;
+        this.refreshMillis = refreshMillis;
+    }
+
+    public boolean isCurrent(Long userId, long tokenVersion) {
+        long now = System.currentTimeMillis();
+        KnownVersion known = versions.get(userId);
+        if (known != null && known.version() == tokenVersion && now - known.checkedAt() < refreshMillis) {
+            return true;
+        }
+
+        Optional<Long> current = userRepository.findTokenVersionById(userId);
+        if (current.isEmpty()) {
+            versions.remove(userId);
+            return false;
+        }
+        return remember(userId, current.get(), now).version() == tokenVersion;
+    }
+
+    // Called after a new version is committed
+    public void update(Long userId, long version) {
+        remember(userId, version, System.currentTimeMillis());
+    }
+
+    private KnownVersion remember(Long userId, long version, long now) {
+        return versions.merge(userId, new KnownVersion(version, now), (known, read) ->
+                read.version() > known.version() ? read
+                        : read.version() == known.version() ? new KnownVersion(known.version(), now) : known);
+    }
+
+    // An entry past the refresh interval is read again anyway, so it is only taking up memory
+    @Scheduled(fixedDelayString = "${jwt.token-version.refresh-ms:300000}")
+    public void evictStale() {
+        long now = System.currentTimeMillis();
+        versions.values().removeIf(known -> now - known.checkedAt() >= refreshMillis);
+    }
+
+    private record KnownVersion(long version, long checkedAt) {
+    }
+}
@@ -1,69 +1,185 @@
 package com.ht.service;
 
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 import java.util.stream.Collectors;
 
-import org.springframework.security.core.context.SecurityContextHolder;
-import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import com.ht.ai.Generation;
+import com.ht.ai.UserConcurrencyLimiter;
+import com.ht.ai.UserQuota;
 import com.ht.dto.request.AIRecommendationRequest;
 import com.ht.dto.response.AIRecommendationResponse;
+import com.ht.dto.response.CursorPage;
 import com.ht.entity.AIRecommendation;
+import com.ht.entity.ModelTier;
 import com.ht.entity.User;
-import com.ht.exception.UnauthorizedException;
+import com.ht.exception.ResourceNotFoundException;
 import com.ht.mapper.AIRecommendationMapper;
+import com.ht.repository.AIRecommendationBatchRepository;
 import com.ht.repository.AIRecommendationRepository;
-import com.ht.repository.UserRepository;
+import com.ht.repository.AIRecommendationSummary;
+import com.ht.security.CurrentUserResolver;
+import com.ht.util.KeysetCursor;
 
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 
 @Service
 @RequiredArgsConstructor
+@Slf4j
 public class AIRecommendationService {
 
     private final AIRecommendationRepository recommendationRepository;
-    private final UserRepository userRepository;
     private final AIRecommendationMapper recommendationMapper;
     private final GeminiAIService geminiAIService;
+    private final CurrentUserResolver currentUserResolver;
+    private final AIRecommendationBatchRepository recommendationBatchRepository;
+    private final UserQuota userQuota;
+    private final UserConcurrencyLimiter userConcurrencyLimiter;
 
-    private User getCurrentUser() {
-        UserDetails userDetails = (UserDetails) SecurityContextHolder.getContext()
-                .getAuthentication().getPrincipal();
-        return userRepository.findByEmail(userDetails.getUsername())
-                .orElseThrow(() -> new UnauthorizedException("User not found"));
+    // Not transactional: the Gemini call must not hold a pooled connection,
+    // only the final save opens a transaction
+    public Mono<AIRecommendationResponse> generateRecommendation(AIRecommendationRequest request) {
+        userQuota.acquire(currentUserResolver.getCurrentUserId(), 1);
+        // Use Gemini AI to generate real recommendation
+        return geminiAIService.generateTravelRecommendation(request, currentUserResolver.getCurrentUserReference())
+                .map(recommendationMapper::toResponse);
     }
 
-    @Transactional
-    public AIRecommendationResponse generateRecommendation(AIRecommendationRequest request) {
-        User currentUser = getCurrentUser();
-        
-        // Use Gemini AI to generate real recommendation
-        AIRecommendation aiRecommendation = geminiAIService.generateTravelRecommendation(request, currentUser);
-        
-        return recommendationMapper.toResponse(aiRecommendation);
+    public Flux<ServerSentEvent<Object>> streamRecommendation(AIRecommendationRequest request) {
+        userQuota.acquire(currentUserResolver.getCurrentUserId(), 1);
+        User user = currentUserResolver.getCurrentUserReference();
+
+        return Flux.defer(() -> {
+            long startNanos = System.nanoTime();
+            StringBuilder assembled = new StringBuilder();
+            AtomicReference<Generation> last = new AtomicReference<>();
+
+            Flux<ServerSentEvent<Object>> chunks = geminiAIService.streamTravelRecommendation(request)
+                    .doOnNext(chunk -> {
+                        assembled.append(chunk.content());
+                        last.set(chunk);
+                    })
+                    .map(chunk -> event("chunk", chunk.content()));
+
+            // Persist only once the whole answer has arrived
+            Mono<ServerSentEvent<Object>> done = Mono.defer(() -> geminiAIService.saveRecommendation(request, user,
+                            new Generation(assembled.toString(), last.get().tier(), last.get().elapsedMs(),
+                                    last.get().tokens(), last.get().reusable())))
+                    .map(recommendation -> event("done", recommendationMapper.toResponse(recommendation)));
+
+            return chunks.concatWith(done)
+                    .onErrorResume(e -> {
+                        log.error("Error streaming Gemini API: {}", e.getMessage());
+                        if (assembled.length() > 0) {
+                            return Flux.just(event("error", "Recommendation stream was interrupted"));
+                        }
+                        // Nothing sent yet: answer with the fallback, as the non-streaming endpoint does
+                        AIRecommendation fallback = geminiAIService.buildRecommendation(request, user,
+                                geminiAIService.fallbackGeneration(request, startNanos));
+                        return Flux.just(
+                                event("chunk", fallback.getContent()),
+                                event("done", recommendationMapper.toResponse(fallback)));
+                    });
+        });
+    }
+
+    /**
+     * Plans several destinations at once: Gemini calls run concurrently, up to
+     * the user's limit across all their batches, each answer is sent as a
+     * {@code result} event (id = its index in the request) as soon as it
+     * arrives, and all rows are inserted together at the end. Fallback answers
+     * are returned but not saved, as for a single recommendation.
+     */
+    public Flux<ServerSentEvent<Object>> generateBatch(List<AIRecommendationRequest> requests) {
+        Long userId = currentUserResolver.getCurrentUserId();
+        userQuota.acquire(userId, requests.size());
+        User user = currentUserResolver.getCurrentUserReference();
+
+        return Flux.defer(() -> {
+            long startNanos = System.nanoTime();
+            AtomicReferenceArray<AIRecommendation> results = new AtomicReferenceArray<>(requests.size());
+
+            Flux<ServerSentEvent<Object>> partials = Flux.range(0, requests.size())
+                    .flatMap(i -> userConcurrencyLimiter.limit(userId, geminiAIService.generateTravelContent(requests.get(i)))
+                            .onErrorResume(e -> {
+                                log.error("Error calling Gemini API for batch item {}: {}", i, e.getMessage());
+                                return Mono.just(geminiAIService.fallbackGeneration(requests.get(i), startNanos));
+                            })
+                            .map(generation -> {
+                                AIRecommendation recommendation = geminiAIService.buildRecommendation(requests.get(i), user, generation);
+                                results.set(i, recommendation);
+                                return ServerSentEvent.<Object>builder(recommendationMapper.toResponse(recommendation))
+                                        .id(String.valueOf(i))
+                                        .event("result")
+                                        .build();
+                            }), userConcurrencyLimiter.getMaxConcurrentPerUser());
+
+            Mono<ServerSentEvent<Object>> done = Mono.fromCallable(() -> {
+                        List<AIRecommendation> recommendations = new ArrayList<>(results.length());
+                        for (int i = 0; i < results.length(); i++) {
+                            AIRecommendation recommendation = results.get(i);
+                            if (recommendation.getModelTier() != ModelTier.FALLBACK) {
+                                recommendations.add(recommendation);
+                            }
+                        }
+                        if (recommendations.isEmpty()) {
+                            return recommendations;
+                        }
+                        List<AIRecommendation> saved = recommendationBatchRepository.insertAll(recommendations);
+                        saved.forEach(geminiAIService::indexed);
+                        return saved;
+                    })
+                    .subscribeOn(Schedulers.boundedElastic())
+                    .map(saved -> event("done", saved.stream().map(recommendationMapper::toResponse).collect(Collectors.toList())));
+
+            return partials.concatWith(done);
+        });
+    }
+
+    private static ServerSentEvent<Object> event(String name, Object data) {
+        return ServerSentEvent.builder(data).event(name).build();
+    }
+
+    // Previews only; the full content comes from getRecommendation
+    @Transactional(readOnly = true)
+    public CursorPage<AIRecommendationResponse> getUserRecommendations(String cursor, int size) {
+        int pageSize = CursorPage.clampSize(size);
+        Long userId = currentUserResolver.getCurrentUserId();
+        PageRequest limit = PageRequest.of(0, pageSize + 1);
+        List<AIRecommendationSummary> summaries;
+        if (cursor == null) {
+            summaries = recommendationRepository.findFirstSummaryPageByUserId(userId, limit);
+        } else {
+            KeysetCursor after = KeysetCursor.decode(cursor);
+            summaries = recommendationRepository.findSummaryPageByUserIdAfter(userId, after.dateTimeValue(), after.id(), limit);
+        }
+        return CursorPage.of(summaries, pageSize, recommendationMapper::toResponse,
+                AIRecommendationSummary::getCreatedAt, AIRecommendationSummary::getId);
     }
 
-    public List<AIRecommendationResponse> getUserRecommendations() {
-        User currentUser = getCurrentUser();
-        return geminiAIService.getUserRecommendations(currentUser)
-                .stream()
+    @Transactional(readOnly = true)
+    public AIRecommendationResponse getRecommendation(Long recommendationId) {
+        return recommendationRepository.findByIdAndUserId(recommendationId, currentUserResolver.getCurrentUserId())
                 .map(recommendationMapper::toResponse)
-                .collect(Collectors.toList());
+                .orElseThrow(() -> new ResourceNotFoundException("Recommendation not found with id: " + recommendationId));
     }
 
     @Transactional
     public void deleteRecommendation(Long recommendationId) {
-        User currentUser = getCurrentUser();
-        AIRecommendation recommendation = recommendationRepository.findById(recommendationId)
-                .orElseThrow(() -> new RuntimeException("Recommendation not found"));
-        
-        if (!recommendation.getUser().getId().equals(currentUser.getId())) {
-            throw new UnauthorizedException("You don't have permission to delete this recommendation");
+        if (recommendationRepository.deleteByIdAndUserId(recommendationId, currentUserResolver.getCurrentUserId()) == 0) {
+            throw new ResourceNotFoundException("Recommendation not found with id: " + recommendationId);
         }
-        
-        recommendationRepository.delete(recommendation);
     }
 }
\ No newline at end of file
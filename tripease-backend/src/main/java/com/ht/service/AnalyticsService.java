@@ -0,0 +1,82 @@
+package com.ht.service;
+
+
+import java.time.YearMonth;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.ht.dto.response.SpendSummary;
+import com.ht.repository.SpendRollupRepository;
+import com.ht.security.CurrentUserResolver;
+import com.ht.util.Constants;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Spend analytics read from the rollups, so each report costs the same
+ * however many expenses a user has. Rollups are kept by the expense and trip
+ * writers; {@link #rebuild(Long)} recomputes them from the source tables.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class AnalyticsService {
+
+    private static final int DEFAULT_MONTHS = 12;
+
+    private final SpendRollupRepository spendRollupRepository;
+    private final CurrentUserResolver currentUserResolver;
+
+    @Value("${analytics.rebuild.chunk-size:500}")
+    private int chunkSize;
+
+    public List<SpendSummary> getSpendByCategory() {
+        return spendRollupRepository.findByCategory(currentUserResolver.getCurrentUserId());
+    }
+
+    // Defaults to the twelve months up to and including the current one
+    public List<SpendSummary> getSpendByMonth(YearMonth from, YearMonth to) {
+        YearMonth end = to != null ? to : YearMonth.now();
+        YearMonth start = from != null ? from : end.minusMonths(DEFAULT_MONTHS - 1);
+        return spendRollupRepository.findByMonth(currentUserResolver.getCurrentUserId(), start, end);
+    }
+
+    public List<SpendSummary> getSpendByTripStatus() {
+        return spendRollupRepository.findByTripStatus(currentUserResolver.getCurrentUserId());
+    }
+
+    public List<SpendSummary> getTopDestinations(int limit) {
+        return spendRollupRepository.findTopDestinations(currentUserResolver.getCurrentUserId(),
+                Math.max(1, Math.min(limit, Constants.MAX_PAGE_SIZE)));
+    }
+
+    /**
+     * Rebuilds one user's rollups, or every user's when userId is null, one
+     * user per transaction.
+     *
+     * @return the number of users rebuilt
+     */
+    public int rebuild(Long userId) {
+        if (userId != null) {
+            spendRollupRepository.rebuild(userId);
+            return 1;
+        }
+        long start = System.currentTimeMillis();
+        long lastId = 0;
+        int rebuilt = 0;
+        List<Long> chunk;
+        do {
+            chunk = spendRollupRepository.findUserIdsAfter(lastId, chunkSize);
+            for (Long id : chunk) {
+                spendRollupRepository.rebuild(id);
+                lastId = id;
+                rebuilt++;
+            }
+        } while (chunk.size() == chunkSize);
+        log.info("Rebuilt spend rollups of {} users in {} ms", rebuilt, System.currentTimeMillis() - start);
+        return rebuilt;
+    }
+}
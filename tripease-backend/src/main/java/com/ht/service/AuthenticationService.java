@@ -14,7 +14,9 @@ import com.ht.entity.User;
 import com.ht.exception.UnauthorizedException;
 import com.ht.mapper.UserMapper;
 import com.ht.repository.UserRepository;
+import com.ht.security.CurrentUserResolver;
 import com.ht.security.JwtUtil;
+import com.ht.security.TokenVersionRegistry;
 
 import lombok.RequiredArgsConstructor;
 
@@ -27,6 +29,8 @@ public class AuthenticationService {
     private final JwtUtil jwtUtil;
     private final AuthenticationManager authenticationManager;
     private final UserMapper userMapper;
+    private final CurrentUserResolver currentUserResolver;
+    private final TokenVersionRegistry tokenVersionRegistry;
 
     @Transactional
     public AuthenticationResponse register(RegisterRequest request) {
@@ -63,4 +67,15 @@ public class AuthenticationService {
         
         return userMapper.toAuthenticationResponse(user, jwtToken);
     }
+
+    /**
+     * Bumps the caller's token version, which revokes all of their tokens.
+     * Other instances notice within the token version refresh interval.
+     */
+    public void logout() {
+        Long userId = currentUserResolver.getCurrentUserId();
+        userRepository.incrementTokenVersion(userId);
+        userRepository.findTokenVersionById(userId)
+                .ifPresent(version -> tokenVersionRegistry.update(userId, version));
+    }
 }
@@ -4,21 +4,15 @@ import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.time.LocalDate;
 import java.util.List;
-import java.util.stream.Collectors;
 
-import org.springframework.security.core.context.SecurityContextHolder;
-import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import com.ht.dto.response.DashboardResponse;
 import com.ht.dto.response.TripResponse;
-import com.ht.entity.Trip;
-import com.ht.entity.User;
-import com.ht.exception.UnauthorizedException;
-import com.ht.mapper.TripMapper;
 import com.ht.repository.ExpenseRepository;
 import com.ht.repository.TripRepository;
-import com.ht.repository.UserRepository;
+import com.ht.security.CurrentUserResolver;
 
 import lombok.RequiredArgsConstructor;
 
@@ -28,19 +22,11 @@ public class DashboardService {
 
     private final TripRepository tripRepository;
     private final ExpenseRepository expenseRepository;
-    private final UserRepository userRepository;
-    private final TripMapper tripMapper;
-
-    private User getCurrentUser() {
-        UserDetails userDetails = (UserDetails) SecurityContextHolder.getContext()
-                .getAuthentication().getPrincipal();
-        return userRepository.findByEmail(userDetails.getUsername())
-                .orElseThrow(() -> new UnauthorizedException("User not found"));
-    }
+    private final CurrentUserResolver currentUserResolver;
 
+    @Transactional(readOnly = true)
     public DashboardResponse getDashboardData() {
-        User currentUser = getCurrentUser();
-        Long userId = currentUser.getId();
+        Long userId = currentUserResolver.getCurrentUserId();
 
         // Get total trips
         Long totalTrips = tripRepository.countTripsByUserId(userId);
@@ -49,11 +35,7 @@ public class DashboardService {
         BigDecimal totalExpenses = expenseRepository.sumExpensesByUserId(userId);
 
         // Get upcoming trips
-        List<TripResponse> upcomingTrips = tripRepository
-                .findUpcomingTripsByUser(userId, LocalDate.now())
-                .stream()
-                .map(tripMapper::toResponse)
-                .collect(Collectors.toList());
+        List<TripResponse> upcomingTrips = tripRepository.findUpcomingTripsByUser(userId, LocalDate.now());
 
         // Calculate budget summary
         DashboardResponse.BudgetSummary budgetSummary = calculateBudgetSummary(userId);
@@ -67,12 +49,7 @@ public class DashboardService {
     }
 
     private DashboardResponse.BudgetSummary calculateBudgetSummary(Long userId) {
-        List<Trip> userTrips = tripRepository.findByUserId(userId);
-        
-        BigDecimal totalBudget = userTrips.stream()
-                .map(Trip::getBudget)
-                .filter(budget -> budget != null)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        BigDecimal totalBudget = tripRepository.sumBudgetsByUserId(userId);
 
         BigDecimal totalSpent = expenseRepository.sumExpensesByUserId(userId);
         BigDecimal remainingBudget = totalBudget.subtract(totalSpent);
@@ -0,0 +1,263 @@
+package com.ht.service;
+
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.ht.dto.request.ExpenseRequest;
+import com.ht.dto.response.ExpenseImportResponse;
+import com.ht.exception.ImportFormatException;
+import com.ht.exception.ResourceNotFoundException;
+import com.ht.repository.ExpenseBatchRepository;
+import com.ht.repository.TripRepository;
+import com.ht.security.CurrentUserResolver;
+import com.ht.util.CsvReader;
+
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Bulk expense import from CSV (with a header row) or NDJSON (one expense
+ * object per line). The body is parsed as it streams in, each row is checked
+ * against the same constraints as a single expense, and valid rows are
+ * written in batches, each committed on its own with one total update.
+ * Invalid rows are skipped and reported by line number.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ExpenseImportService {
+
+    private static final int MAX_REPORTED_ERRORS = 100;
+    private static final List<String> REQUIRED_COLUMNS = List.of("title", "amount", "expensedate", "category");
+
+    private final TripRepository tripRepository;
+    private final ExpenseBatchRepository expenseBatchRepository;
+    private final CurrentUserResolver currentUserResolver;
+    private final Validator validator;
+    private final ObjectMapper objectMapper;
+
+    @Value("${expenses.import.batch-size:500}")
+    private int batchSize;
+
+    @Value("${expenses.import.max-rows:50000}")
+    private int maxRows;
+
+    @Value("${expenses.import.max-line-length:65536}")
+    private int maxLineLength;
+
+    public ExpenseImportResponse importCsv(Long tripId, InputStream body) throws IOException {
+        Batch batch = startImport(tripId);
+        CsvReader csv = new CsvReader(reader(body), maxLineLength);
+        Map<String, Integer> columns = readHeader(csv.next());
+
+        List<String> record;
+        while ((record = csv.next()) != null && !batch.full()) {
+            if (record.size() == 1 && record.get(0).isBlank()) {
+                continue;
+            }
+            try {
+                batch.add(csv.getRecordLine(), toRequest(record, columns));
+            } catch (IllegalArgumentException e) {
+                batch.reject(csv.getRecordLine(), e.getMessage());
+            }
+        }
+        return batch.finish(record != null ? csv.getRecordLine() : 0);
+    }
+
+    public ExpenseImportResponse importNdjson(Long tripId, InputStream body) throws IOException {
+        Batch batch = startImport(tripId);
+        ObjectReader expenseReader = objectMapper.readerFor(ExpenseRequest.class);
+        BufferedReader reader = reader(body);
+
+        String line;
+        long lineNumber = 0;
+        while ((line = readLine(reader, lineNumber + 1)) != null && !batch.full()) {
+            lineNumber++;
+            if (line.isBlank()) {
+                continue;
+            }
+            try {
+                batch.add(lineNumber, expenseReader.readValue(line));
+            } catch (JsonProcessingException e) {
+                batch.reject(lineNumber, "Invalid JSON: " + e.getOriginalMessage());
+            }
+        }
+        return batch.finish(line != null ? lineNumber + 1 : 0);
+    }
+
+    private Batch startImport(Long tripId) {
+        Long userId = currentUserResolver.getCurrentUserId();
+        if (!tripRepository.existsByIdAndUserId(tripId, userId)) {
+            throw new ResourceNotFoundException("Trip not found with id: " + tripId);
+        }
+        return new Batch(userId, tripId);
+    }
+
+    // Like BufferedReader.readLine, but gives up on a line over the limit instead of buffering all of it
+    private String readLine(BufferedReader reader, long lineNumber) throws IOException {
+        StringBuilder line = new StringBuilder();
+        int c;
+        while ((c = reader.read()) != -1 && c != '\n') {
+            if (line.length() >= maxLineLength) {
+                throw new ImportFormatException("Line " + lineNumber + " is longer than " + maxLineLength + " characters");
+            }
+            line.append((char) c);
+        }
+        if (c == -1 && line.isEmpty()) {
+            return null;
+        }
+        int end = line.length();
+        return end > 0 && line.charAt(end - 1) == '\r' ? line.substring(0, end - 1) : line.toString();
+    }
+
+    private static BufferedReader reader(InputStream body) {
+        return new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8));
+    }
+
+    // Header names are matched ignoring case, spaces and underscores; "date" stands for expense date
+    private static Map<String, Integer> readHeader(List<String> header) {
+        if (header == null) {
+            throw new ImportFormatException("CSV body is empty");
+        }
+        Map<String, Integer> columns = new HashMap<>();
+        for (int i = 0; i < header.size(); i++) {
+            String name = header.get(i).replace("\uFEFF", "").replaceAll("[^A-Za-z]", "").toLowerCase(Locale.ROOT);
+            columns.putIfAbsent("date".equals(name) ? "expensedate" : name, i);
+        }
+        List<String> missing = REQUIRED_COLUMNS.stream().filter(column -> !columns.containsKey(column)).toList();
+        if (!missing.isEmpty()) {
+            throw new ImportFormatException("CSV header is missing column(s): " + String.join(", ", missing));
+        }
+        return columns;
+    }
+
+    private static ExpenseRequest toRequest(List<String> record, Map<String, Integer> columns) {
+        ExpenseRequest request = new ExpenseRequest();
+        request.setTitle(value(record, columns, "title"));
+        request.setDescription(value(record, columns, "description"));
+        request.setCategory(value(record, columns, "category"));
+
+        String amount = value(record, columns, "amount");
+        if (amount != null) {
+            try {
+                request.setAmount(new BigDecimal(amount));
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid amount '" + amount + "'");
+            }
+        }
+        String expenseDate = value(record, columns, "expensedate");
+        if (expenseDate != null) {
+            try {
+                request.setExpenseDate(LocalDate.parse(expenseDate));
+            } catch (DateTimeParseException e) {
+                throw new IllegalArgumentException("Invalid expense date '" + expenseDate + "', expected yyyy-MM-dd");
+            }
+        }
+        return request;
+    }
+
+    private static String value(List<String> record, Map<String, Integer> columns, String column) {
+        Integer index = columns.get(column);
+        if (index == null || index >= record.size()) {
+            return null;
+        }
+        String value = record.get(index).trim();
+        return value.isEmpty() ? null : value;
+    }
+
+    private final class Batch {
+
+        private final Long userId;
+        private final Long tripId;
+        private final List<ExpenseRequest> pending = new ArrayList<>(batchSize);
+        private final List<ExpenseImportResponse.RowError> errors = new ArrayList<>();
+        private int rows;
+        private int imported;
+        private int rejected;
+
+        private Batch(Long userId, Long tripId) {
+            this.userId = userId;
+            this.tripId = tripId;
+        }
+
+        boolean full() {
+            return rows >= maxRows;
+        }
+
+        void add(long line, ExpenseRequest request) {
+            rows++;
+            if (request == null) {
+                addError(line, "Expected a JSON object");
+                return;
+            }
+            String violations = validator.validate(request).stream()
+                    .map(ConstraintViolation::getMessage)
+                    .sorted()
+                    .collect(Collectors.joining("; "));
+            if (!violations.isEmpty()) {
+                addError(line, violations);
+                return;
+            }
+            pending.add(request);
+            if (pending.size() >= batchSize) {
+                flush();
+            }
+        }
+
+        void reject(long line, String message) {
+            rows++;
+            addError(line, message);
+        }
+
+        private void addError(long line, String message) {
+            if (rejected++ < MAX_REPORTED_ERRORS) {
+                errors.add(new ExpenseImportResponse.RowError(line, message));
+            }
+        }
+
+        // stoppedAtLine is the first line left unread because of the row limit, or 0
+        ExpenseImportResponse finish(long stoppedAtLine) {
+            flush();
+            if (stoppedAtLine > 0) {
+                errors.add(new ExpenseImportResponse.RowError(stoppedAtLine,
+                        "Import stopped at the limit of " + maxRows + " rows; the remaining rows were not read"));
+            }
+            log.info("Imported {} expenses into trip {} ({} rejected)", imported, tripId, rejected);
+            return ExpenseImportResponse.builder()
+                    .imported(imported)
+                    .rejected(rejected)
+                    .totalExpenses(tripRepository.findTotalExpensesById(tripId))
+                    .errors(errors)
+                    .build();
+        }
+
+        private void flush() {
+            if (!pending.isEmpty()) {
+                expenseBatchRepository.insertAll(userId, tripId, pending);
+                imported += pending.size();
+                pending.clear();
+            }
+        }
+    }
+}
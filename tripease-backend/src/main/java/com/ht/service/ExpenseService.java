@@ -1,26 +1,24 @@
 package com.ht.service;
 
 
-import java.math.BigDecimal;
 import java.util.List;
-import java.util.stream.Collectors;
 
-import org.springframework.security.core.context.SecurityContextHolder;
-import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import com.ht.dto.request.ExpenseRequest;
+import com.ht.dto.response.CursorPage;
 import com.ht.dto.response.ExpenseResponse;
 import com.ht.entity.Expense;
-import com.ht.entity.Trip;
-import com.ht.entity.User;
 import com.ht.exception.ResourceNotFoundException;
-import com.ht.exception.UnauthorizedException;
 import com.ht.mapper.ExpenseMapper;
 import com.ht.repository.ExpenseRepository;
+import com.ht.repository.RollupDelta;
+import com.ht.repository.SpendRollupRepository;
 import com.ht.repository.TripRepository;
-import com.ht.repository.UserRepository;
+import com.ht.security.CurrentUserResolver;
+import com.ht.util.KeysetCursor;
 
 import lombok.RequiredArgsConstructor;
 
@@ -30,69 +28,58 @@ public class ExpenseService {
 
     private final ExpenseRepository expenseRepository;
     private final TripRepository tripRepository;
-    private final UserRepository userRepository;
+    private final SpendRollupRepository spendRollupRepository;
     private final ExpenseMapper expenseMapper;
+    private final CurrentUserResolver currentUserResolver;
 
-    private User getCurrentUser() {
-        UserDetails userDetails = (UserDetails) SecurityContextHolder.getContext()
-                .getAuthentication().getPrincipal();
-        return userRepository.findByEmail(userDetails.getUsername())
-                .orElseThrow(() -> new UnauthorizedException("User not found"));
-    }
-
+    // The trip total moves by the expense amount in the same transaction. Its row is
+    // locked before the expense is written, so writers to one trip queue on that lock
+    // instead of deadlocking on the foreign key check or the spend rollups
     @Transactional
     public ExpenseResponse addExpense(Long tripId, ExpenseRequest request) {
-        User currentUser = getCurrentUser();
-        Trip trip = tripRepository.findById(tripId)
-                .orElseThrow(() -> new ResourceNotFoundException("Trip not found with id: " + tripId));
-
-        if (!trip.getUser().getId().equals(currentUser.getId())) {
-            throw new UnauthorizedException("You don't have permission to add expenses to this trip");
+        Long userId = currentUserResolver.getCurrentUserId();
+        if (tripRepository.addToTotalExpenses(tripId, userId, request.getAmount()) == 0) {
+            throw new ResourceNotFoundException("Trip not found with id: " + tripId);
         }
+        spendRollupRepository.addExpenses(userId, tripId,
+                new RollupDelta().add(request.getCategory(), request.getExpenseDate(), request.getAmount(), 1));
 
-        Expense expense = expenseMapper.toEntity(request, trip);
+        Expense expense = expenseMapper.toEntity(request, tripRepository.getReferenceById(tripId));
         Expense savedExpense = expenseRepository.save(expense);
-
-        // Update trip total expenses
-        BigDecimal totalExpenses = expenseRepository.sumExpensesByTripId(tripId);
-        trip.setTotalExpenses(totalExpenses);
-        tripRepository.save(trip);
-
         return expenseMapper.toResponse(savedExpense);
     }
 
-    public List<ExpenseResponse> getTripExpenses(Long tripId) {
-        User currentUser = getCurrentUser();
-        Trip trip = tripRepository.findById(tripId)
-                .orElseThrow(() -> new ResourceNotFoundException("Trip not found with id: " + tripId));
-
-        if (!trip.getUser().getId().equals(currentUser.getId())) {
-            throw new UnauthorizedException("You don't have permission to view expenses for this trip");
+    @Transactional(readOnly = true)
+    public CursorPage<ExpenseResponse> getTripExpenses(Long tripId, String cursor, int size) {
+        if (!tripRepository.existsByIdAndUserId(tripId, currentUserResolver.getCurrentUserId())) {
+            throw new ResourceNotFoundException("Trip not found with id: " + tripId);
         }
 
-        return expenseRepository.findByTripId(tripId)
-                .stream()
-                .map(expenseMapper::toResponse)
-                .collect(Collectors.toList());
+        int pageSize = CursorPage.clampSize(size);
+        PageRequest limit = PageRequest.of(0, pageSize + 1);
+        List<ExpenseResponse> expenses;
+        if (cursor == null) {
+            expenses = expenseRepository.findFirstPageByTripId(tripId, limit);
+        } else {
+            KeysetCursor after = KeysetCursor.decode(cursor);
+            expenses = expenseRepository.findPageByTripIdAfter(tripId, after.dateValue(), after.id(), limit);
+        }
+        return CursorPage.of(expenses, pageSize, ExpenseResponse::getExpenseDate, ExpenseResponse::getId);
     }
 
     @Transactional
     public void deleteExpense(Long expenseId) {
-        User currentUser = getCurrentUser();
-        Expense expense = expenseRepository.findById(expenseId)
+        Long userId = currentUserResolver.getCurrentUserId();
+        Expense expense = expenseRepository.findByIdAndTripUserId(expenseId, userId)
                 .orElseThrow(() -> new ResourceNotFoundException("Expense not found with id: " + expenseId));
 
-        if (!expense.getTrip().getUser().getId().equals(currentUser.getId())) {
-            throw new UnauthorizedException("You don't have permission to delete this expense");
-        }
-
         Long tripId = expense.getTrip().getId();
-        expenseRepository.delete(expense);
-
-        // Update trip total expenses
-        BigDecimal totalExpenses = expenseRepository.sumExpensesByTripId(tripId);
-        Trip trip = expense.getTrip();
-        trip.setTotalExpenses(totalExpenses);
-        tripRepository.save(trip);
+        tripRepository.addToTotalExpenses(tripId, userId, expense.getAmount().negate());
+        // A concurrent delete got there first: roll back the decrement
+        if (expenseRepository.deleteByIdAndTripId(expenseId, tripId) == 0) {
+            throw new ResourceNotFoundException("Expense not found with id: " + expenseId);
+        }
+        spendRollupRepository.addExpenses(userId, tripId,
+                new RollupDelta().add(expense.getCategory(), expense.getExpenseDate(), expense.getAmount(), -1));
     }
 }
\ No newline at end of file
@@ -0,0 +1,110 @@
+package com.ht.service;
+
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.ht.dto.request.ExportFormat;
+import com.ht.dto.response.ExpenseResponse;
+import com.ht.dto.response.TripResponse;
+import com.ht.repository.ExpenseRepository;
+import com.ht.repository.TripRepository;
+import com.ht.util.CsvWriter;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Full-history exports of a user's trips or expenses. Rows are read from a
+ * streaming query and written to the output as they arrive, flushed every
+ * {@value #FLUSH_EVERY_ROWS} rows, so memory use does not grow with the
+ * account. Rows come in id order and {@code afterId} skips those already
+ * received, which lets an interrupted download resume.
+ */
+@Slf4j
+@Service
+public class ExportService {
+
+    private static final int FLUSH_EVERY_ROWS = 500;
+
+    private static final String[] TRIP_COLUMNS = {"id", "title", "description", "destination", "startDate",
+            "endDate", "budget", "totalExpenses", "status", "createdAt", "updatedAt"};
+    private static final String[] EXPENSE_COLUMNS = {"id", "tripId", "title", "description", "amount",
+            "expenseDate", "category", "createdAt", "updatedAt"};
+
+    private final TripRepository tripRepository;
+    private final ExpenseRepository expenseRepository;
+    private final ObjectWriter jsonWriter;
+
+    public ExportService(TripRepository tripRepository, ExpenseRepository expenseRepository, ObjectMapper objectMapper,
+                         @Value("${spring.datasource.url:}") String datasourceUrl) {
+        // Without cursor fetch MySQL ignores the fetch size and reads the whole result into memory
+        if (datasourceUrl.startsWith("jdbc:mysql:") && !datasourceUrl.contains("useCursorFetch=true")) {
+            log.warn("spring.datasource.url lacks useCursorFetch=true; exports will buffer each result set in memory");
+        }
+        this.tripRepository = tripRepository;
+        this.expenseRepository = expenseRepository;
+        // Flushing is ours to decide, not once per row
+        this.jsonWriter = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+    }
+
+    @Transactional(readOnly = true)
+    public void exportTrips(Long userId, long afterId, ExportFormat format, OutputStream out) throws IOException {
+        try (Stream<TripResponse> trips = tripRepository.streamForExport(userId, afterId)) {
+            write(trips.iterator(), format, out, TRIP_COLUMNS, trip -> new Object[] {
+                    trip.getId(), trip.getTitle(), trip.getDescription(), trip.getDestination(), trip.getStartDate(),
+                    trip.getEndDate(), trip.getBudget(), trip.getTotalExpenses(), trip.getStatus(),
+                    trip.getCreatedAt(), trip.getUpdatedAt()});
+        }
+    }
+
+    @Transactional(readOnly = true)
+    public void exportExpenses(Long userId, long afterId, ExportFormat format, OutputStream out) throws IOException {
+        try (Stream<ExpenseResponse> expenses = expenseRepository.streamForExport(userId, afterId)) {
+            write(expenses.iterator(), format, out, EXPENSE_COLUMNS, expense -> new Object[] {
+                    expense.getId(), expense.getTripId(), expense.getTitle(), expense.getDescription(),
+                    expense.getAmount(), expense.getExpenseDate(), expense.getCategory(),
+                    expense.getCreatedAt(), expense.getUpdatedAt()});
+        }
+    }
+
+    private <T> void write(Iterator<T> rows, ExportFormat format, OutputStream out, String[] columns,
+                           Function<T, Object[]> csvRow) throws IOException {
+        int written = 0;
+        if (format == ExportFormat.CSV) {
+            CsvWriter csv = new CsvWriter(new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8)));
+            csv.writeRow((Object[]) columns);
+            while (rows.hasNext()) {
+                csv.writeRow(csvRow.apply(rows.next()));
+                if (++written % FLUSH_EVERY_ROWS == 0) {
+                    csv.flush();
+                }
+            }
+            csv.flush();
+        } else {
+            JsonGenerator generator = jsonWriter.createGenerator(out);
+            generator.setRootValueSeparator(null);
+            while (rows.hasNext()) {
+                jsonWriter.writeValue(generator, rows.next());
+                generator.writeRaw('\n');
+                if (++written % FLUSH_EVERY_ROWS == 0) {
+                    generator.flush();
+                }
+            }
+            generator.flush();
+        }
+    }
+}
@@ -1,23 +1,43 @@
 package com.ht.service;
 
 
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.web.reactive.function.client.WebClient;
 
+import com.ht.ai.AdaptiveConcurrencyLimiter;
+import com.ht.ai.CircuitBreaker;
+import com.ht.ai.Generation;
+import com.ht.ai.ModelTierSelector;
+import com.ht.ai.PromptKey;
+import com.ht.ai.RecommendationCache;
+import com.ht.ai.RequestCoalescer;
+import com.ht.ai.RequestHedger;
+import com.ht.ai.SimilarityIndex;
+import com.ht.ai.TierPlan;
+import com.ht.ai.UsageLedger;
 import com.ht.dto.request.AIRecommendationRequest;
 import com.ht.dto.request.GeminiRequest;
 import com.ht.dto.response.GeminiResponse;
 import com.ht.entity.AIRecommendation;
+import com.ht.entity.ModelTier;
 import com.ht.entity.User;
+import com.ht.exception.AIUnavailableException;
 import com.ht.repository.AIRecommendationRepository;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 
 
 
@@ -26,33 +46,175 @@ import reactor.core.publisher.Mono;
 @Slf4j
 public class GeminiAIService {
 
+    // Bump whenever createTravelPrompt changes so cached answers to the old prompt are not reused
+    private static final int PROMPT_VERSION = 1;
+    private static final String NO_RECOMMENDATION = "Unable to generate recommendation at this time.";
+
     private final WebClient geminiWebClient;
     private final AIRecommendationRepository recommendationRepository;
+    private final RecommendationCache recommendationCache;
+    private final RequestCoalescer requestCoalescer;
+    private final AdaptiveConcurrencyLimiter concurrencyLimiter;
+    private final CircuitBreaker circuitBreaker;
+    private final RequestHedger requestHedger;
+    private final ModelTierSelector modelTierSelector;
+    private final UsageLedger usageLedger;
+    private final SimilarityIndex similarityIndex;
+
+    @Value("${gemini.default-latency-budget-ms:0}")
+    private long defaultLatencyBudgetMs;
+
+    @Value("${gemini.call.timeout-ms:45000}")
+    private long callTimeoutMs;
+
+    public Mono<AIRecommendation> generateTravelRecommendation(AIRecommendationRequest request, User user) {
+        long startNanos = System.nanoTime();
+        return generateTravelContent(request, startNanos)
+                // Only a failed Gemini call falls back; a failed save is an error, not a reason to drop the answer
+                .onErrorResume(e -> {
+                    log.error("Error calling Gemini API: {}", e.getMessage());
+                    return Mono.just(fallbackGeneration(request, startNanos));
+                })
+                // JPA is blocking, so the save must not run on a Netty event-loop thread
+                .publishOn(Schedulers.boundedElastic())
+                .map(generation -> generation.tier() == ModelTier.FALLBACK
+                        ? buildRecommendation(request, user, generation)
+                        : indexed(recommendationRepository.save(buildRecommendation(request, user, generation))));
+    }
+
+    public Flux<Generation> streamTravelRecommendation(AIRecommendationRequest request) {
+        return Flux.defer(() -> {
+            long startNanos = System.nanoTime();
+            Optional<Generation> cached = cachedAnswer(request, startNanos);
+            if (cached.isPresent()) {
+                return Flux.just(cached.get());
+            }
+
+            TierPlan plan = selectTier(request, startNanos);
+            PromptKey key = PromptKey.of(request, plan.model(), PROMPT_VERSION);
+            StringBuilder assembled = new StringBuilder();
+            return streamGeminiAPI(createTravelPrompt(request), plan)
+                    .doOnNext(chunk -> assembled.append(chunk.text()))
+                    .doOnComplete(() -> {
+                        if (assembled.length() > 0 && !plan.reduced()) {
+                            recommendationCache.put(key, assembled.toString());
+                        }
+                    })
+                    .map(chunk -> new Generation(chunk.text(), plan.tier(), elapsedMs(startNanos), chunk.tokens(),
+                            !plan.reduced()));
+        });
+    }
 
-    @Value("${gemini.model}")
-    private String modelName;
-
-    public AIRecommendation generateTravelRecommendation(AIRecommendationRequest request, User user) {
-        try {
-            String prompt = createTravelPrompt(request);
-            String aiResponse = callGeminiAPI(prompt);
-            
-            AIRecommendation recommendation = AIRecommendation.builder()
-                    .type("TRAVEL")
-                    .content(aiResponse)
-                    .destination(request.getDestination())
-                    .budgetRange(request.getBudgetRange())
-                    .user(user)
-                    .createdAt(LocalDateTime.now())
-                    .build();
-            
-            return recommendationRepository.save(recommendation);
-            
-        } catch (Exception e) {
-            log.error("Error calling Gemini API: {}", e.getMessage());
-            // Fallback to dummy recommendation if API fails
-            return createFallbackRecommendation(request, user);
+    public Mono<Generation> generateTravelContent(AIRecommendationRequest request) {
+        return generateTravelContent(request, System.nanoTime());
+    }
+
+    private Mono<Generation> generateTravelContent(AIRecommendationRequest request, long startNanos) {
+        return Mono.defer(() -> {
+            Optional<Generation> cached = cachedAnswer(request, startNanos);
+            if (cached.isPresent()) {
+                return Mono.just(cached.get());
+            }
+
+            TierPlan plan = selectTier(request, startNanos);
+            PromptKey key = PromptKey.of(request, plan.model(), PROMPT_VERSION);
+            Mono<GeminiAnswer> content;
+            if (plan.reduced()) {
+                // A shortened answer must neither be cached nor handed to full-length callers
+                content = callGeminiAPI(createTravelPrompt(request), plan);
+            } else {
+                // Identical prompts already on their way to Gemini share that call
+                content = requestCoalescer.coalesce(key, () -> callGeminiAPI(createTravelPrompt(request), plan)
+                        .doOnNext(answer -> recommendationCache.put(key, answer.text())));
+            }
+
+            long remainingMs = remainingMs(request, startNanos);
+            if (remainingMs != Long.MAX_VALUE) {
+                // Stop at the deadline rather than overrun it; callers answer with the fallback
+                content = content.timeout(Duration.ofMillis(remainingMs));
+            }
+            return content
+                    .map(answer -> new Generation(answer.text(), plan.tier(), elapsedMs(startNanos), answer.tokens(),
+                            !plan.reduced()))
+                    .switchIfEmpty(Mono.fromSupplier(() ->
+                            new Generation(NO_RECOMMENDATION, plan.tier(), elapsedMs(startNanos), 0, false)));
+        });
+    }
+
+    /**
+     * Asks Gemini for a fresh full-length answer and caches it as prewarmed,
+     * ignoring any cached or similar answer. Used to warm the cache ahead of demand.
+     */
+    public Mono<Generation> pregenerate(AIRecommendationRequest request) {
+        return Mono.defer(() -> {
+            long startNanos = System.nanoTime();
+            TierPlan plan = modelTierSelector.select(Long.MAX_VALUE)
+                    .orElseThrow(() -> new AIUnavailableException("No Gemini tier is available"));
+            PromptKey key = PromptKey.of(request, plan.model(), PROMPT_VERSION);
+            return requestCoalescer.coalesce(key, () -> callGeminiAPI(createTravelPrompt(request), plan))
+                    .doOnNext(answer -> recommendationCache.putPrewarmed(key, answer.text()))
+                    .map(answer -> new Generation(answer.text(), plan.tier(), elapsedMs(startNanos), answer.tokens(), true));
+        });
+    }
+
+    // Any tier's cached answer beats a new call, richest first, then a near-duplicate request's answer
+    private Optional<Generation> cachedAnswer(AIRecommendationRequest request, long startNanos) {
+        for (Map.Entry<String, ModelTier> model : modelTierSelector.models().entrySet()) {
+            Optional<String> cached = recommendationCache.get(PromptKey.of(request, model.getKey(), PROMPT_VERSION));
+            if (cached.isPresent()) {
+                return Optional.of(new Generation(cached.get(), model.getValue(), elapsedMs(startNanos), 0, true));
+            }
+        }
+        return similarityIndex.find(request)
+                .map(match -> new Generation(match.content(), match.tier(), elapsedMs(startNanos), 0, true));
+    }
+
+    private TierPlan selectTier(AIRecommendationRequest request, long startNanos) {
+        return modelTierSelector.select(remainingMs(request, startNanos))
+                .orElseThrow(() -> new AIUnavailableException("No Gemini tier can answer within the latency budget"));
+    }
+
+    private long remainingMs(AIRecommendationRequest request, long startNanos) {
+        long budget = request.getLatencyBudgetMs() != null ? request.getLatencyBudgetMs() : defaultLatencyBudgetMs;
+        if (budget <= 0) {
+            return Long.MAX_VALUE;
         }
+        return Math.max(0, budget - elapsedMs(startNanos));
+    }
+
+    private static long elapsedMs(long startNanos) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+    }
+
+    public Mono<AIRecommendation> saveRecommendation(AIRecommendationRequest request, User user, Generation generation) {
+        return Mono.fromCallable(() -> indexed(recommendationRepository.save(buildRecommendation(request, user, generation))))
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    /**
+     * Makes a saved answer available to similar requests.
+     */
+    public AIRecommendation indexed(AIRecommendation recommendation) {
+        similarityIndex.add(recommendation);
+        return recommendation;
+    }
+
+    // Every generation is turned into a recommendation exactly once, so its tokens are counted here
+    public AIRecommendation buildRecommendation(AIRecommendationRequest request, User user, Generation generation) {
+        usageLedger.recordTokens(user.getId(), generation.tokens());
+        return AIRecommendation.builder()
+                .type("TRAVEL")
+                .content(generation.content())
+                .contentPreview(AIRecommendation.previewOf(generation.content()))
+                .destination(request.getDestination())
+                .budgetRange(request.getBudgetRange())
+                .preferences(request.getPreferences())
+                .modelTier(generation.tier())
+                .generationMs(generation.elapsedMs())
+                .reusable(generation.reusable())
+                .user(user)
+                .createdAt(LocalDateTime.now())
+                .build();
     }
 
     private String createTravelPrompt(AIRecommendationRequest request) {
@@ -82,8 +244,8 @@ public class GeminiAIService {
         return prompt.toString();
     }
 
-    private String callGeminiAPI(String prompt) {
-        GeminiRequest request = GeminiRequest.builder()
+    private GeminiRequest buildGeminiRequest(String prompt, TierPlan plan) {
+        return GeminiRequest.builder()
                 .contents(List.of(
                     GeminiRequest.Content.builder()
                             .parts(List.of(
@@ -95,44 +257,101 @@ public class GeminiAIService {
                 ))
                 .generationConfig(GeminiRequest.GenerationConfig.builder()
                         .temperature(0.7)
-                        .maxOutputTokens(2048)
+                        .maxOutputTokens(plan.maxOutputTokens())
                         .topP(0.95)
                         .build())
                 .build();
+    }
 
-        try {
-            GeminiResponse response = geminiWebClient.post()
-                    .uri(uriBuilder -> uriBuilder.path("/models/" + modelName + ":generateContent").build())
-                    .bodyValue(request)
-                    .retrieve()
-                    .onStatus(status -> status.is4xxClientError() || status.is5xxServerError(),
-                            clientResponse -> clientResponse.bodyToMono(String.class)
-                                    .flatMap(errorBody -> {
-                                        log.error("Gemini API error: {}", errorBody);
-                                        return Mono.error(new RuntimeException("Gemini API error: " + errorBody));
-                                    }))
-                    .bodyToMono(GeminiResponse.class)
-                    .block();
-
-            if (response != null && response.getCandidates() != null && !response.getCandidates().isEmpty()) {
-                GeminiResponse.Candidate candidate = response.getCandidates().get(0);
-                if (candidate.getContent() != null && 
-                    candidate.getContent().getParts() != null && 
-                    !candidate.getContent().getParts().isEmpty()) {
-                    return candidate.getContent().getParts().get(0).getText();
-                }
-            }
-            
-            return "Unable to generate recommendation at this time.";
-            
-        } catch (Exception e) {
-            log.error("Error calling Gemini API: {}", e.getMessage());
-            throw new RuntimeException("Failed to get AI recommendation", e);
+    private Mono<GeminiAnswer> callGeminiAPI(String prompt, TierPlan plan) {
+        GeminiRequest request = buildGeminiRequest(prompt, plan);
+
+        Mono<GeminiAnswer> call = geminiWebClient.post()
+                .uri(uriBuilder -> uriBuilder.path("/models/" + plan.model() + ":generateContent").build())
+                .bodyValue(request)
+                .retrieve()
+                .onStatus(status -> status.is4xxClientError() || status.is5xxServerError(),
+                        clientResponse -> clientResponse.bodyToMono(String.class)
+                                .flatMap(errorBody -> {
+                                    log.error("Gemini API error: {}", errorBody);
+                                    return Mono.error(new RuntimeException("Gemini API error: " + errorBody));
+                                }))
+                .bodyToMono(GeminiResponse.class)
+                .mapNotNull(this::toAnswer)
+                .timeout(Duration.ofMillis(callTimeoutMs))
+                .onErrorMap(e -> new RuntimeException("Failed to get AI recommendation", e));
+
+        // Limiter outermost so calls it sheds are not counted as Gemini failures;
+        // a hedge is a second upstream call and goes through both guards as well
+        return Mono.defer(() -> {
+            long startNanos = System.nanoTime();
+            // Every upstream call that did not fail is billed, including a hedge cancelled once the other
+            // won; its own usage never arrives, so it is charged what the winning answer used
+            AtomicInteger billedCalls = new AtomicInteger();
+            return requestHedger.hedge(() -> concurrencyLimiter.protect(circuitBreaker.protect(call))
+                            .doOnSubscribe(subscription -> billedCalls.incrementAndGet())
+                            .doOnError(e -> billedCalls.decrementAndGet()))
+                    .map(answer -> new GeminiAnswer(answer.text(), answer.tokens() * Math.max(1, billedCalls.get())))
+                    .doOnSuccess(answer -> {
+                        if (!plan.reduced()) {
+                            modelTierSelector.record(plan.tier(), elapsedMs(startNanos));
+                        }
+                    });
+        });
+    }
+
+    private Flux<GeminiAnswer> streamGeminiAPI(String prompt, TierPlan plan) {
+        Flux<GeminiAnswer> call = geminiWebClient.post()
+                .uri(uriBuilder -> uriBuilder.path("/models/" + plan.model() + ":streamGenerateContent")
+                        .queryParam("alt", "sse")
+                        .build())
+                .bodyValue(buildGeminiRequest(prompt, plan))
+                .retrieve()
+                .onStatus(status -> status.is4xxClientError() || status.is5xxServerError(),
+                        clientResponse -> clientResponse.bodyToMono(String.class)
+                                .flatMap(errorBody -> {
+                                    log.error("Gemini API error: {}", errorBody);
+                                    return Mono.error(new RuntimeException("Gemini API error: " + errorBody));
+                                }))
+                // Each SSE event carries a partial GenerateContentResponse; usage is cumulative
+                .bodyToFlux(GeminiResponse.class)
+                .mapNotNull(this::toAnswer)
+                .onErrorMap(e -> new RuntimeException("Failed to stream AI recommendation", e));
+
+        return concurrencyLimiter.protect(circuitBreaker.protect(call));
+    }
+
+    private GeminiAnswer toAnswer(GeminiResponse response) {
+        String text = extractChunk(response);
+        if (text == null) {
+            return null;
+        }
+        GeminiResponse.UsageMetadata usage = response.getUsageMetadata();
+        long tokens = usage != null && usage.getTotalTokenCount() != null ? usage.getTotalTokenCount() : 0;
+        return new GeminiAnswer(text, tokens);
+    }
+
+    private String extractChunk(GeminiResponse response) {
+        if (response.getCandidates() == null || response.getCandidates().isEmpty()) {
+            return null;
         }
+        GeminiResponse.Content content = response.getCandidates().get(0).getContent();
+        if (content == null || content.getParts() == null || content.getParts().isEmpty()) {
+            return null;
+        }
+        return content.getParts().get(0).getText();
+    }
+
+    /**
+     * Canned answer used when Gemini fails or no tier fits the budget;
+     * {@code startNanos} is when the request was accepted.
+     */
+    public Generation fallbackGeneration(AIRecommendationRequest request, long startNanos) {
+        return new Generation(createFallbackContent(request), ModelTier.FALLBACK, elapsedMs(startNanos), 0, false);
     }
 
-    private AIRecommendation createFallbackRecommendation(AIRecommendationRequest request, User user) {
-        String fallbackContent = String.format(
+    private String createFallbackContent(AIRecommendationRequest request) {
+        return String.format(
                 "🌍 Travel Guide for %s\n\n" +
                 "Based on your interests, here are some recommendations:\n\n" +
                 "🏨 **Accommodation**: Consider booking hotels in the city center for easy access to attractions. " +
@@ -144,18 +363,9 @@ public class GeminiAIService {
                 request.getDestination(),
                 request.getBudgetRange() != null ? request.getBudgetRange() : "specified"
         );
-
-        return AIRecommendation.builder()
-                .type("TRAVEL")
-                .content(fallbackContent)
-                .destination(request.getDestination())
-                .budgetRange(request.getBudgetRange())
-                .user(user)
-                .createdAt(LocalDateTime.now())
-                .build();
     }
 
-    public List<AIRecommendation> getUserRecommendations(User user) {
-        return recommendationRepository.findByUserId(user.getId());
+
+    private record GeminiAnswer(String text, long tokens) {
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,172 @@
+package com.ht.service;
+
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.ht.ai.Generation;
+import com.ht.ai.UserQuota;
+import com.ht.dto.request.AIRecommendationRequest;
+import com.ht.dto.response.RecommendationJobResponse;
+import com.ht.entity.AIRecommendation;
+import com.ht.entity.RecommendationJob;
+import com.ht.entity.RecommendationJob.JobStatus;
+import com.ht.exception.ResourceNotFoundException;
+import com.ht.mapper.AIRecommendationMapper;
+import com.ht.repository.AIRecommendationRepository;
+import com.ht.repository.RecommendationJobRepository;
+import com.ht.security.CurrentUserResolver;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class RecommendationJobService {
+
+    private final RecommendationJobRepository jobRepository;
+    private final AIRecommendationRepository recommendationRepository;
+    private final AIRecommendationMapper recommendationMapper;
+    private final GeminiAIService geminiAIService;
+    private final CurrentUserResolver currentUserResolver;
+    private final UserQuota userQuota;
+
+    @Value("${ai.jobs.max-attempts:5}")
+    private int maxAttempts;
+
+    @Value("${ai.jobs.backoff-ms:5000}")
+    private long backoffMs;
+
+    @Value("${ai.jobs.max-backoff-ms:300000}")
+    private long maxBackoffMs;
+
+    @Transactional
+    public RecommendationJobResponse submit(AIRecommendationRequest request) {
+        userQuota.acquire(currentUserResolver.getCurrentUserId(), 1);
+        RecommendationJob job = RecommendationJob.builder()
+                .user(currentUserResolver.getCurrentUserReference())
+                .destination(request.getDestination())
+                .budgetRange(request.getBudgetRange())
+                .preferences(request.getPreferences())
+                .status(JobStatus.PENDING)
+                .build();
+        return toResponse(jobRepository.save(job));
+    }
+
+    @Transactional(readOnly = true)
+    public RecommendationJobResponse getJob(Long jobId) {
+        return jobRepository.findByIdAndUserId(jobId, currentUserResolver.getCurrentUserId())
+                .map(this::toResponse)
+                .orElseThrow(() -> new ResourceNotFoundException("Job not found with id: " + jobId));
+    }
+
+    /**
+     * Leases up to {@code limit} due jobs to {@code nodeId}. Rows locked by
+     * another node's claim in progress are skipped rather than waited on.
+     */
+    @Transactional
+    public List<RecommendationJob> claimBatch(int limit, String nodeId) {
+        LocalDateTime now = LocalDateTime.now();
+        List<RecommendationJob> jobs = jobRepository.lockClaimable(now, limit);
+        jobs.forEach(job -> {
+            job.setStatus(JobStatus.RUNNING);
+            job.setLockedBy(nodeId);
+            job.setLockedAt(now);
+            job.setAttempts(job.getAttempts() + 1);
+        });
+        return jobs;
+    }
+
+    @Transactional
+    public void complete(Long jobId, String nodeId, Generation generation) {
+        RecommendationJob job = findLeased(jobId, nodeId);
+        if (job == null) {
+            return;
+        }
+        AIRecommendation recommendation = geminiAIService.indexed(recommendationRepository.save(
+                geminiAIService.buildRecommendation(toRequest(job), job.getUser(), generation)));
+
+        job.setStatus(JobStatus.SUCCEEDED);
+        job.setRecommendationId(recommendation.getId());
+        job.setLockedBy(null);
+        job.setLockedAt(null);
+        job.setLastError(null);
+    }
+
+    @Transactional
+    public void retryOrFail(Long jobId, String nodeId, Throwable error) {
+        RecommendationJob job = findLeased(jobId, nodeId);
+        if (job == null) {
+            return;
+        }
+        job.setLockedBy(null);
+        job.setLockedAt(null);
+        job.setLastError(truncate(String.valueOf(error.getMessage())));
+
+        if (job.getAttempts() >= maxAttempts) {
+            job.setStatus(JobStatus.FAILED);
+            log.warn("Recommendation job {} failed after {} attempts: {}", jobId, job.getAttempts(), error.getMessage());
+        } else {
+            job.setStatus(JobStatus.PENDING);
+            job.setNextAttemptAt(LocalDateTime.now().plus(backoff(job.getAttempts())));
+        }
+    }
+
+    /**
+     * Returns jobs whose worker died mid-flight (crash, restart) to the queue.
+     */
+    @Transactional
+    public int releaseExpiredLeases(Duration lease) {
+        LocalDateTime now = LocalDateTime.now();
+        return jobRepository.releaseExpiredLeases(now.minus(lease), now);
+    }
+
+    public AIRecommendationRequest toRequest(RecommendationJob job) {
+        AIRecommendationRequest request = new AIRecommendationRequest();
+        request.setDestination(job.getDestination());
+        request.setBudgetRange(job.getBudgetRange());
+        request.setPreferences(job.getPreferences());
+        return request;
+    }
+
+    // A lease that expired and was re-claimed elsewhere is no longer ours to settle
+    private RecommendationJob findLeased(Long jobId, String nodeId) {
+        return jobRepository.findByIdForUpdate(jobId)
+                .filter(job -> job.getStatus() == JobStatus.RUNNING && nodeId.equals(job.getLockedBy()))
+                .orElse(null);
+    }
+
+    private Duration backoff(int attempts) {
+        long exponential = backoffMs << Math.min(attempts - 1, 20);
+        long capped = Math.min(exponential, maxBackoffMs);
+        // Jitter spreads retries of jobs that failed together
+        return Duration.ofMillis(capped / 2 + ThreadLocalRandom.current().nextLong(capped / 2 + 1));
+    }
+
+    private RecommendationJobResponse toResponse(RecommendationJob job) {
+        RecommendationJobResponse.RecommendationJobResponseBuilder response = RecommendationJobResponse.builder()
+                .id(job.getId())
+                .status(job.getStatus().name())
+                .attempts(job.getAttempts())
+                .error(job.getStatus() == JobStatus.FAILED ? job.getLastError() : null)
+                .createdAt(job.getCreatedAt())
+                .updatedAt(job.getUpdatedAt());
+        if (job.getRecommendationId() != null) {
+            recommendationRepository.findById(job.getRecommendationId())
+                    .map(recommendationMapper::toResponse)
+                    .ifPresent(response::recommendation);
+        }
+        return response.build();
+    }
+
+    private static String truncate(String message) {
+        return message.length() <= 1000 ? message : message.substring(0, 1000);
+    }
+}
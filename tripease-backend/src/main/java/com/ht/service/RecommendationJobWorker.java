@@ -0,0 +1,118 @@
+package com.ht.service;
+
+
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.ht.ai.MetricsSource;
+import com.ht.entity.RecommendationJob;
+
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Drains recommendation_jobs. At most {@code ai.jobs.parallelism} jobs run on
+ * this node at a time; the poller only claims as many as there are free slots.
+ */
+@Component
+@Slf4j
+public class RecommendationJobWorker implements MetricsSource {
+
+    private final RecommendationJobService jobService;
+    private final GeminiAIService geminiAIService;
+    private final int parallelism;
+    private final int batchSize;
+    private final Duration lease;
+    private final Semaphore slots;
+    private final String nodeId = ManagementFactory.getRuntimeMXBean().getName();
+
+    private final LongAdder claimed = new LongAdder();
+    private final LongAdder succeeded = new LongAdder();
+    private final LongAdder failedAttempts = new LongAdder();
+    private final LongAdder leasesReleased = new LongAdder();
+
+    public RecommendationJobWorker(
+            RecommendationJobService jobService,
+            GeminiAIService geminiAIService,
+            @Value("${ai.jobs.parallelism:4}") int parallelism,
+            @Value("${ai.jobs.batch-size:10}") int batchSize,
+            @Value("${ai.jobs.lease-ms:300000}") long leaseMs
+    ) {
+        this.jobService = jobService;
+        this.geminiAIService = geminiAIService;
+        this.parallelism = parallelism;
+        this.batchSize = batchSize;
+        this.lease = Duration.ofMillis(leaseMs);
+        this.slots = new Semaphore(parallelism);
+    }
+
+    @Scheduled(fixedDelayString = "${ai.jobs.poll-ms:1000}")
+    public void poll() {
+        int free = Math.min(batchSize, slots.availablePermits());
+        if (free == 0) {
+            return;
+        }
+        // Only this thread acquires, so the permits just counted are still free
+        slots.acquireUninterruptibly(free);
+        List<RecommendationJob> jobs;
+        try {
+            jobs = jobService.claimBatch(free, nodeId);
+        } catch (RuntimeException e) {
+            slots.release(free);
+            log.error("Failed to claim recommendation jobs: {}", e.getMessage());
+            return;
+        }
+        slots.release(free - jobs.size());
+        claimed.add(jobs.size());
+        jobs.forEach(this::process);
+    }
+
+    @Scheduled(fixedDelayString = "${ai.jobs.lease-check-ms:60000}")
+    public void releaseExpiredLeases() {
+        int released = jobService.releaseExpiredLeases(lease);
+        if (released > 0) {
+            leasesReleased.add(released);
+            log.warn("Returned {} recommendation jobs with expired leases to the queue", released);
+        }
+    }
+
+    private void process(RecommendationJob job) {
+        geminiAIService.generateTravelContent(jobService.toRequest(job))
+                .publishOn(Schedulers.boundedElastic())
+                .doOnNext(generation -> {
+                    jobService.complete(job.getId(), nodeId, generation);
+                    succeeded.increment();
+                })
+                .doOnError(e -> {
+                    failedAttempts.increment();
+                    jobService.retryOrFail(job.getId(), nodeId, e);
+                })
+                .doFinally(signal -> slots.release())
+                .subscribe(generation -> { }, e -> log.error("Recommendation job {} attempt failed: {}", job.getId(), e.getMessage()));
+    }
+
+    @Override
+    public String metricsName() {
+        return "recommendationJobs";
+    }
+
+    @Override
+    public Map<String, Number> metrics() {
+        return Map.of(
+                "parallelism", parallelism,
+                "running", parallelism - slots.availablePermits(),
+                "claimed", claimed.sum(),
+                "succeeded", succeeded.sum(),
+                "failedAttempts", failedAttempts.sum(),
+                "leasesReleased", leasesReleased.sum()
+        );
+    }
+}
@@ -0,0 +1,180 @@
+package com.ht.service;
+
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.ht.ai.AdaptiveConcurrencyLimiter;
+import com.ht.ai.CircuitBreaker;
+import com.ht.ai.MetricsSource;
+import com.ht.ai.PromptKey;
+import com.ht.ai.RecommendationCache;
+import com.ht.dto.request.AIRecommendationRequest;
+import com.ht.repository.AIRecommendationRepository;
+import com.ht.repository.DestinationDemand;
+import com.ht.repository.TripRepository;
+
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Off-peak cache warming. Finds the destination/budget combinations asked for
+ * most in recent recommendations and upcoming trips, and has Gemini answer
+ * them into the recommendation cache with at most {@code ai.prewarm.parallelism}
+ * calls at a time. A call only starts while the breaker is closed and live
+ * traffic leaves at least half the concurrency limit free, and a run stops
+ * once it has spent {@code ai.prewarm.max-tokens-per-run}.
+ */
+@Component
+@Slf4j
+public class RecommendationPrewarmer implements MetricsSource {
+
+    private final AIRecommendationRepository recommendationRepository;
+    private final TripRepository tripRepository;
+    private final GeminiAIService geminiAIService;
+    private final RecommendationCache recommendationCache;
+    private final AdaptiveConcurrencyLimiter concurrencyLimiter;
+    private final CircuitBreaker circuitBreaker;
+    private final boolean enabled;
+    private final int maxPrompts;
+    private final int parallelism;
+    private final int lookbackDays;
+    private final long maxTokensPerRun;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+    private final LongAdder runs = new LongAdder();
+    private final LongAdder pregenerated = new LongAdder();
+    private final LongAdder deferred = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder tokens = new LongAdder();
+
+    public RecommendationPrewarmer(
+            AIRecommendationRepository recommendationRepository,
+            TripRepository tripRepository,
+            GeminiAIService geminiAIService,
+            RecommendationCache recommendationCache,
+            AdaptiveConcurrencyLimiter concurrencyLimiter,
+            CircuitBreaker circuitBreaker,
+            @Value("${ai.prewarm.enabled:false}") boolean enabled,
+            @Value("${ai.prewarm.max-prompts:20}") int maxPrompts,
+            @Value("${ai.prewarm.parallelism:2}") int parallelism,
+            @Value("${ai.prewarm.lookback-days:30}") int lookbackDays,
+            @Value("${ai.prewarm.max-tokens-per-run:100000}") long maxTokensPerRun
+    ) {
+        this.recommendationRepository = recommendationRepository;
+        this.tripRepository = tripRepository;
+        this.geminiAIService = geminiAIService;
+        this.recommendationCache = recommendationCache;
+        this.concurrencyLimiter = concurrencyLimiter;
+        this.circuitBreaker = circuitBreaker;
+        this.enabled = enabled;
+        this.maxPrompts = maxPrompts;
+        this.parallelism = parallelism;
+        this.lookbackDays = lookbackDays;
+        this.maxTokensPerRun = maxTokensPerRun;
+    }
+
+    // Runs asynchronously so the shared scheduler thread is not held for the whole run
+    @Scheduled(cron = "${ai.prewarm.cron:0 0 5 * * *}")
+    public void prewarm() {
+        if (!enabled || !running.compareAndSet(false, true)) {
+            return;
+        }
+        List<AIRecommendationRequest> prompts;
+        try {
+            prompts = popularPrompts();
+        } catch (RuntimeException e) {
+            running.set(false);
+            log.error("Failed to find destinations to prewarm: {}", e.getMessage());
+            return;
+        }
+
+        runs.increment();
+        LongAdder runAnswers = new LongAdder();
+        LongAdder runTokens = new LongAdder();
+        Flux.fromIterable(prompts)
+                .flatMap(request -> Mono.defer(() -> {
+                    if (runTokens.sum() >= maxTokensPerRun || !hasHeadroom()) {
+                        deferred.increment();
+                        return Mono.empty();
+                    }
+                    return geminiAIService.pregenerate(request)
+                            .doOnNext(generation -> {
+                                pregenerated.increment();
+                                runAnswers.increment();
+                                runTokens.add(generation.tokens());
+                                tokens.add(generation.tokens());
+                            })
+                            .onErrorResume(e -> {
+                                failed.increment();
+                                log.warn("Failed to prewarm {}: {}", request.getDestination(), e.getMessage());
+                                return Mono.empty();
+                            });
+                }), parallelism)
+                .doFinally(signal -> {
+                    running.set(false);
+                    log.info("Prewarmed {} of {} popular recommendations using {} tokens",
+                            runAnswers.sum(), prompts.size(), runTokens.sum());
+                })
+                .subscribe();
+    }
+
+    private boolean hasHeadroom() {
+        return circuitBreaker.getState() == CircuitBreaker.State.CLOSED
+                && concurrencyLimiter.getInFlight() < concurrencyLimiter.getLimit() / 2;
+    }
+
+    private List<AIRecommendationRequest> popularPrompts() {
+        PageRequest top = PageRequest.of(0, maxPrompts);
+        List<DestinationDemand> demand = new ArrayList<>(recommendationRepository.findPopularDestinations(
+                LocalDateTime.now().minusDays(lookbackDays), top));
+        demand.addAll(tripRepository.findPopularDestinations(LocalDate.now(), top));
+
+        // Spellings that differ only in case or spacing are one prompt, as in the cache key
+        Map<String, DestinationDemand> merged = new LinkedHashMap<>();
+        for (DestinationDemand entry : demand) {
+            merged.merge(PromptKey.normalize(entry.destination()) + "|" + PromptKey.normalize(entry.budgetRange()), entry,
+                    (a, b) -> new DestinationDemand(a.destination(), a.budgetRange(), a.requests() + b.requests()));
+        }
+        return merged.values().stream()
+                .sorted(Comparator.comparingLong(DestinationDemand::requests).reversed())
+                .limit(maxPrompts)
+                .map(entry -> {
+                    AIRecommendationRequest request = new AIRecommendationRequest();
+                    request.setDestination(entry.destination());
+                    request.setBudgetRange(entry.budgetRange());
+                    return request;
+                })
+                .toList();
+    }
+
+    @Override
+    public String metricsName() {
+        return "prewarm";
+    }
+
+    @Override
+    public Map<String, Number> metrics() {
+        return Map.of(
+                "runs", runs.sum(),
+                "pregenerated", pregenerated.sum(),
+                "deferred", deferred.sum(),
+                "failed", failed.sum(),
+                "tokens", tokens.sum(),
+                "cacheHits", recommendationCache.prewarmedHits()
+        );
+    }
+}
@@ -2,22 +2,23 @@ package com.ht.service;
 
 
 import java.util.List;
-import java.util.stream.Collectors;
 
-import org.springframework.security.core.context.SecurityContextHolder;
-import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import com.ht.dto.request.TripRequest;
+import com.ht.dto.response.CursorPage;
 import com.ht.dto.response.TripResponse;
 import com.ht.entity.Trip;
-import com.ht.entity.User;
 import com.ht.exception.ResourceNotFoundException;
-import com.ht.exception.UnauthorizedException;
 import com.ht.mapper.TripMapper;
+import com.ht.repository.RollupDelta;
+import com.ht.repository.SpendRollupRepository;
 import com.ht.repository.TripRepository;
-import com.ht.repository.UserRepository;
+import com.ht.security.CurrentUserResolver;
+import com.ht.util.KeysetCursor;
 
 import lombok.RequiredArgsConstructor;
 
@@ -26,69 +27,85 @@ import lombok.RequiredArgsConstructor;
 public class TripService {
 
     private final TripRepository tripRepository;
-    private final UserRepository userRepository;
+    private final SpendRollupRepository spendRollupRepository;
     private final TripMapper tripMapper;
+    private final CurrentUserResolver currentUserResolver;
 
-    private User getCurrentUser() {
-        UserDetails userDetails = (UserDetails) SecurityContextHolder.getContext()
-                .getAuthentication().getPrincipal();
-        return userRepository.findByEmail(userDetails.getUsername())
-                .orElseThrow(() -> new UnauthorizedException("User not found"));
+    // Locked, as expense writers lock it, so rollup moves and expense deltas are serialised per trip
+    private Trip lockOwnedTrip(Long tripId) {
+        return tripRepository.findForUpdate(tripId, currentUserResolver.getCurrentUserId())
+                .orElseThrow(() -> new ResourceNotFoundException("Trip not found with id: " + tripId));
     }
 
     @Transactional
     public TripResponse createTrip(TripRequest request) {
-        User currentUser = getCurrentUser();
-        Trip trip = tripMapper.toEntity(request, currentUser);
+        Trip trip = tripMapper.toEntity(request, currentUserResolver.getCurrentUserReference());
         Trip savedTrip = tripRepository.save(trip);
+        spendRollupRepository.addTrips(currentUserResolver.getCurrentUserId(),
+                savedTrip.getStatus(), savedTrip.getDestination(), 1, 0);
         return tripMapper.toResponse(savedTrip);
     }
 
     @Transactional
     public TripResponse updateTrip(Long tripId, TripRequest request) {
-        User currentUser = getCurrentUser();
-        Trip trip = tripRepository.findById(tripId)
-                .orElseThrow(() -> new ResourceNotFoundException("Trip not found with id: " + tripId));
-
-        if (!trip.getUser().getId().equals(currentUser.getId())) {
-            throw new UnauthorizedException("You don't have permission to update this trip");
+        Trip trip = lockOwnedTrip(tripId);
+        // Compared under the row lock, so an edit based on an older read cannot overwrite a newer one
+        if (!trip.getVersion().equals(request.getVersion())) {
+            throw new ObjectOptimisticLockingFailureException(Trip.class, tripId);
         }
-
+        Trip.TripStatus oldStatus = trip.getStatus();
+        String oldDestination = trip.getDestination();
         tripMapper.updateEntity(request, trip);
-        Trip updatedTrip = tripRepository.save(trip);
+        // Flushed so the response carries the bumped version the next edit must send
+        Trip updatedTrip = tripRepository.saveAndFlush(trip);
+
+        // The trip takes the spend it carries to its new status and destination. That spend is
+        // summed from the expense rows, like deletes and rebuilds, so a drifted total cannot skew it
+        if (oldStatus != trip.getStatus() || !oldDestination.equals(trip.getDestination())) {
+            spendRollupRepository.moveTrip(currentUserResolver.getCurrentUserId(), oldStatus, trip.getStatus(),
+                    oldDestination, trip.getDestination(), spendRollupRepository.sumTripExpenses(tripId));
+        }
         return tripMapper.toResponse(updatedTrip);
     }
 
+    /**
+     * Deletes the trip with one bulk statement; its expenses are removed by the
+     * ON DELETE CASCADE foreign key, not by Hibernate, so no entity callback or
+     * delete of an expense runs. Anything the application keeps over expenses
+     * must therefore take the trip's expenses out here, before the delete.
+     */
     @Transactional
     public void deleteTrip(Long tripId) {
-        User currentUser = getCurrentUser();
-        Trip trip = tripRepository.findById(tripId)
-                .orElseThrow(() -> new ResourceNotFoundException("Trip not found with id: " + tripId));
+        Long userId = currentUserResolver.getCurrentUserId();
+        Trip trip = lockOwnedTrip(tripId);
 
-        if (!trip.getUser().getId().equals(currentUser.getId())) {
-            throw new UnauthorizedException("You don't have permission to delete this trip");
-        }
+        // Take the expenses out of the rollups while the trip row still names their status and destination
+        RollupDelta expenses = spendRollupRepository.findTripExpenses(tripId);
+        spendRollupRepository.addExpenses(userId, tripId, expenses);
+        spendRollupRepository.addTrips(userId, trip.getStatus(), trip.getDestination(), -1, 0);
 
-        tripRepository.delete(trip);
+        tripRepository.deleteByIdAndUserId(tripId, userId);
     }
 
-    public List<TripResponse> getAllUserTrips() {
-        User currentUser = getCurrentUser();
-        return tripRepository.findByUserId(currentUser.getId())
-                .stream()
-                .map(tripMapper::toResponse)
-                .collect(Collectors.toList());
+    @Transactional(readOnly = true)
+    public CursorPage<TripResponse> getUserTrips(String cursor, int size) {
+        int pageSize = CursorPage.clampSize(size);
+        Long userId = currentUserResolver.getCurrentUserId();
+        // One extra row tells whether there is a next page
+        PageRequest limit = PageRequest.of(0, pageSize + 1);
+        List<TripResponse> trips;
+        if (cursor == null) {
+            trips = tripRepository.findFirstPageByUserId(userId, limit);
+        } else {
+            KeysetCursor after = KeysetCursor.decode(cursor);
+            trips = tripRepository.findPageByUserIdAfter(userId, after.dateValue(), after.id(), limit);
+        }
+        return CursorPage.of(trips, pageSize, TripResponse::getStartDate, TripResponse::getId);
     }
 
+    @Transactional(readOnly = true)
     public TripResponse getTripById(Long tripId) {
-        User currentUser = getCurrentUser();
-        Trip trip = tripRepository.findById(tripId)
+        return tripRepository.findResponseByIdAndUserId(tripId, currentUserResolver.getCurrentUserId())
                 .orElseThrow(() -> new ResourceNotFoundException("Trip not found with id: " + tripId));
-
-        if (!trip.getUser().getId().equals(currentUser.getId())) {
-            throw new UnauthorizedException("You don't have permission to view this trip");
-        }
-
-        return tripMapper.toResponse(trip);
     }
 }
\ No newline at end of file
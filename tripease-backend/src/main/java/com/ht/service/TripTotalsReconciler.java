@@ -0,0 +1,53 @@
+package com.ht.service;
+
+
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.ht.repository.TripTotalsRepository;
+import com.ht.repository.TripTotalsRepository.TripTotal;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Safety net for trips.total_expenses, which is otherwise kept only by delta
+ * updates: walks all trips in id order, a chunk at a time, and repairs any
+ * total that no longer matches its expenses. A mismatch seen while a write
+ * is in flight is rechecked under the trip's lock before anything changes.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class TripTotalsReconciler {
+
+    private final TripTotalsRepository tripTotalsRepository;
+
+    @Value("${trips.reconcile.chunk-size:500}")
+    private int chunkSize;
+
+    @Scheduled(cron = "${trips.reconcile.cron:0 30 4 * * *}")
+    public void reconcile() {
+        long start = System.currentTimeMillis();
+        long lastId = 0;
+        int checked = 0;
+        int repaired = 0;
+        List<TripTotal> chunk;
+        do {
+            chunk = tripTotalsRepository.findTotalsAfter(lastId, chunkSize);
+            for (TripTotal total : chunk) {
+                checked++;
+                lastId = total.tripId();
+                if (!total.matches() && tripTotalsRepository.repair(total.tripId())) {
+                    repaired++;
+                    log.warn("Repaired total of trip {}: stored {}, expenses sum to {}",
+                            total.tripId(), total.stored(), total.actual());
+                }
+            }
+        } while (chunk.size() == chunkSize);
+        log.info("Checked {} trip totals in {} ms, repaired {}", checked, System.currentTimeMillis() - start, repaired);
+    }
+}
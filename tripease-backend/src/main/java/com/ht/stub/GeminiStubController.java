@@ -0,0 +1,174 @@
+package com.ht.stub;
+
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.ht.dto.request.GeminiRequest;
+import com.ht.dto.response.GeminiResponse;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Stand-in for the Gemini REST API so the AI endpoints can run offline and be
+ * load-tested. Enable with the {@code gemini-stub} profile, which points
+ * gemini.api.url here.
+ *
+ * Each call takes a log-normally distributed time (gemini.stub.latency-median-ms,
+ * gemini.stub.latency-sigma; sigma 0 gives a fixed latency) and fails with 503
+ * at gemini.stub.error-rate. Streamed calls spread the latency over their chunks
+ * and fail by dropping the stream part-way. gemini.stub.response-chars pads or
+ * trims the canned answer to a given size.
+ */
+@Profile("gemini-stub")
+@RestController
+@RequestMapping("/gemini-stub")
+public class GeminiStubController {
+
+    private static final long MAX_LATENCY_MS = 60_000;
+    private static final int STUB_PROMPT_TOKENS = 150;
+
+    private final long latencyMedianMs;
+    private final double latencySigma;
+    private final double errorRate;
+    private final int responseChars;
+    private final int streamChunks;
+
+    public GeminiStubController(
+            @Value("${gemini.stub.latency-median-ms:1200}") long latencyMedianMs,
+            @Value("${gemini.stub.latency-sigma:0}") double latencySigma,
+            @Value("${gemini.stub.error-rate:0}") double errorRate,
+            @Value("${gemini.stub.response-chars:0}") int responseChars,
+            @Value("${gemini.stub.stream-chunks:8}") int streamChunks
+    ) {
+        this.latencyMedianMs = latencyMedianMs;
+        this.latencySigma = latencySigma;
+        this.errorRate = errorRate;
+        this.responseChars = responseChars;
+        this.streamChunks = Math.max(1, streamChunks);
+    }
+
+    @PostMapping("/models/{model}:generateContent")
+    public Mono<ResponseEntity<Object>> generateContent(@PathVariable String model, @RequestBody GeminiRequest request) {
+        boolean fail = shouldFail();
+        String text = answer(destinationOf(request));
+        return Mono.delay(sampleLatency())
+                .map(tick -> fail
+                        ? ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(errorBody())
+                        : ResponseEntity.ok(response(text, text.length())));
+    }
+
+    @PostMapping(value = "/models/{model}:streamGenerateContent", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<ServerSentEvent<GeminiResponse>> streamGenerateContent(
+            @PathVariable String model,
+            @RequestBody GeminiRequest request
+    ) {
+        List<String> chunks = split(answer(destinationOf(request)), streamChunks);
+        Duration interval = sampleLatency().dividedBy(chunks.size());
+
+        Flux<String> stream = Flux.fromIterable(chunks);
+        if (shouldFail()) {
+            stream = stream.take(ThreadLocalRandom.current().nextInt(chunks.size()))
+                    .concatWith(Flux.error(new IllegalStateException("Stub stream dropped")));
+        }
+        // Like Gemini, each event reports the usage of the whole answer so far
+        AtomicInteger streamedChars = new AtomicInteger();
+        return stream.delayElements(interval)
+                .map(chunk -> ServerSentEvent.builder(response(chunk, streamedChars.addAndGet(chunk.length()))).build());
+    }
+
+    private Duration sampleLatency() {
+        double factor = Math.exp(latencySigma * ThreadLocalRandom.current().nextGaussian());
+        return Duration.ofMillis(Math.min(MAX_LATENCY_MS, Math.round(latencyMedianMs * factor)));
+    }
+
+    private boolean shouldFail() {
+        return errorRate > 0 && ThreadLocalRandom.current().nextDouble() < errorRate;
+    }
+
+    private String answer(String destination) {
+        String canned = String.join("", cannedChunks(destination));
+        if (responseChars <= 0) {
+            return canned;
+        }
+        StringBuilder text = new StringBuilder(responseChars);
+        while (text.length() < responseChars) {
+            text.append(canned).append("\n\n");
+        }
+        return text.substring(0, responseChars);
+    }
+
+    private static List<String> split(String text, int parts) {
+        List<String> chunks = new ArrayList<>(parts);
+        int size = (text.length() + parts - 1) / parts;
+        for (int start = 0; start < text.length(); start += size) {
+            chunks.add(text.substring(start, Math.min(text.length(), start + size)));
+        }
+        return chunks;
+    }
+
+    private static List<String> cannedChunks(String destination) {
+        List<String> chunks = new ArrayList<>();
+        chunks.add("## Travel plan for " + destination + "\n\n");
+        chunks.add("**Best time to visit:** spring and early autumn, when the weather is mild.\n\n");
+        chunks.add("**Must-see attractions:** the old town, the main museum and a sunset viewpoint.\n\n");
+        chunks.add("**Local cuisine:** try the street-food market and a family-run restaurant.\n\n");
+        chunks.add("**Accommodation:** central guesthouses keep you close to everything.\n\n");
+        chunks.add("**Transport:** buy a day pass for public transport.\n\n");
+        chunks.add("**Daily budget:** plan for lodging, food and entry fees.\n\n");
+        chunks.add("**Safety:** keep valuables close in crowded areas.");
+        return chunks;
+    }
+
+    private static String destinationOf(GeminiRequest request) {
+        String prompt = request.getContents().get(0).getParts().get(0).getText();
+        for (String line : prompt.split("\n")) {
+            if (line.startsWith("Destination: ")) {
+                return line.substring("Destination: ".length());
+            }
+        }
+        return "your destination";
+    }
+
+    private static Map<String, Object> errorBody() {
+        return Map.of("error", Map.of(
+                "code", 503,
+                "message", "The model is overloaded. Please try again later.",
+                "status", "UNAVAILABLE"));
+    }
+
+    // Roughly four characters per token, which is close enough for quota testing
+    private static GeminiResponse response(String text, int answerChars) {
+        int candidatesTokens = answerChars / 4;
+        return GeminiResponse.builder()
+                .candidates(List.of(GeminiResponse.Candidate.builder()
+                        .content(GeminiResponse.Content.builder()
+                                .role("model")
+                                .parts(List.of(GeminiResponse.Part.builder().text(text).build()))
+                                .build())
+                        .build()))
+                .usageMetadata(GeminiResponse.UsageMetadata.builder()
+                        .promptTokenCount(STUB_PROMPT_TOKENS)
+                        .candidatesTokenCount(candidatesTokens)
+                        .totalTokenCount(STUB_PROMPT_TOKENS + candidatesTokens)
+                        .build())
+                .build();
+    }
+}
@@ -11,6 +11,11 @@ public class Constants {
     
     public static final String DEFAULT_PAGE_SIZE = "10";
     public static final String DEFAULT_PAGE_NUMBER = "0";
+    public static final int MAX_PAGE_SIZE = 100;
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    public static final String CSV_MEDIA_TYPE = "text/csv";
+    // Rows per round trip when streaming exports (MySQL streams only with useCursorFetch=true)
+    public static final String EXPORT_FETCH_SIZE = "500";
     
     private Constants() {
         // Private constructor to prevent instantiation
@@ -0,0 +1,50 @@
+package com.ht.util;
+
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+import com.ht.exception.InvalidCursorException;
+
+/**
+ * Position in a keyset-paginated listing: the sort value and id of the last
+ * row already returned. Clients see it only as an opaque base64url token.
+ */
+public record KeysetCursor(String sortValue, Long id) {
+
+    private static final char SEPARATOR = '|';
+
+    public static String encode(Object sortValue, Long id) {
+        String raw = sortValue + String.valueOf(SEPARATOR) + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static KeysetCursor decode(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = raw.lastIndexOf(SEPARATOR);
+            return new KeysetCursor(raw.substring(0, separator), Long.parseLong(raw.substring(separator + 1)));
+        } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+            throw new InvalidCursorException("Invalid page cursor");
+        }
+    }
+
+    public LocalDate dateValue() {
+        try {
+            return LocalDate.parse(sortValue);
+        } catch (DateTimeParseException e) {
+            throw new InvalidCursorException("Invalid page cursor");
+        }
+    }
+
+    public LocalDateTime dateTimeValue() {
+        try {
+            return LocalDateTime.parse(sortValue);
+        } catch (DateTimeParseException e) {
+            throw new InvalidCursorException("Invalid page cursor");
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package com.ht.util;
+
+
+import java.math.BigDecimal;
+
+/**
+ * Amounts as whole paise (hundredths), for aggregating with long arithmetic.
+ * Amounts are stored with two decimals, so the conversion is exact.
+ */
+public final class MinorUnits {
+
+    private static final int SCALE = 2;
+
+    private MinorUnits() {
+    }
+
+    public static long of(BigDecimal amount) {
+        return amount.movePointRight(SCALE).longValueExact();
+    }
+
+    public static BigDecimal toAmount(long minor) {
+        return BigDecimal.valueOf(minor, SCALE);
+    }
+}
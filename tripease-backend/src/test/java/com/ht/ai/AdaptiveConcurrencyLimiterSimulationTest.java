@@ -0,0 +1,70 @@
+package com.ht.ai;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.junit.jupiter.api.Test;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Drives the limiter against a simulated Gemini that, like the gemini-stub
+ * profile with a fixed latency, answers in BASE_LATENCY while at most CAPACITY
+ * calls are in flight, and shares that capacity between calls beyond it
+ * (latency grows with the overload). Far more clients than CAPACITY call in a
+ * closed loop; the limiter should settle near CAPACITY and shed the rest.
+ */
+class AdaptiveConcurrencyLimiterSimulationTest {
+
+    private static final int CAPACITY = 10;
+    private static final Duration BASE_LATENCY = Duration.ofMillis(20);
+    private static final int CLIENTS = 60;
+    private static final Duration RUN_TIME = Duration.ofSeconds(4);
+
+    private final AtomicInteger serverInFlight = new AtomicInteger();
+    private final LongAdder served = new LongAdder();
+    private final LongAdder shed = new LongAdder();
+
+    @Test
+    void limitConvergesNearServerCapacity() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(50, 2, 200);
+        long deadline = System.nanoTime() + RUN_TIME.toNanos();
+
+        Flux.range(0, CLIENTS)
+                .flatMap(client -> clientLoop(limiter, deadline), CLIENTS)
+                .blockLast(RUN_TIME.plusSeconds(10));
+
+        int limit = limiter.getLimit();
+        assertTrue(limit >= CAPACITY / 2 && limit <= CAPACITY * 3,
+                "limit " + limit + " should settle near capacity " + CAPACITY);
+        assertTrue(shed.sum() > 0, "excess clients should be shed");
+        assertTrue(served.sum() > 0, "calls within the limit should be served");
+    }
+
+    private Mono<Void> clientLoop(AdaptiveConcurrencyLimiter limiter, long deadline) {
+        return limiter.protect(simulatedGemini())
+                .doOnNext(value -> served.increment())
+                .onErrorResume(e -> {
+                    shed.increment();
+                    // A shed caller gets the fallback at once and comes back a little later
+                    return Mono.delay(Duration.ofMillis(5)).then(Mono.empty());
+                })
+                .then(Mono.defer(() -> System.nanoTime() < deadline
+                        ? clientLoop(limiter, deadline)
+                        : Mono.empty()));
+    }
+
+    private Mono<String> simulatedGemini() {
+        return Mono.defer(() -> {
+            int load = serverInFlight.incrementAndGet();
+            long latency = BASE_LATENCY.toMillis() * Math.max(load, CAPACITY) / CAPACITY;
+            return Mono.delay(Duration.ofMillis(latency))
+                    .thenReturn("answer")
+                    .doFinally(signal -> serverInFlight.decrementAndGet());
+        });
+    }
+}
@@ -0,0 +1,120 @@
+package com.ht.ai;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.Test;
+
+import com.ht.exception.AIUnavailableException;
+
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+/**
+ * State transitions of the breaker, driven by calls whose outcome the test
+ * decides. Calls held open in sinks stand for Gemini calls still in flight
+ * while the breaker changes state around them.
+ */
+class CircuitBreakerTest {
+
+    private static final long LONG_OPEN_MS = 3_600_000;
+
+    @Test
+    void opensAfterConsecutiveFailuresAndRejectsCalls() {
+        CircuitBreaker breaker = new CircuitBreaker(2, LONG_OPEN_MS);
+        fail(breaker);
+        succeed(breaker);
+        fail(breaker);
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+
+        fail(breaker);
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertInstanceOf(AIUnavailableException.class, outcome(breaker.protect(Mono.just("answer"))));
+    }
+
+    @Test
+    void successOfCallFromBeforeOpeningKeepsBreakerOpen() {
+        CircuitBreaker breaker = new CircuitBreaker(1, LONG_OPEN_MS);
+        Sinks.One<String> inFlight = start(breaker);
+        fail(breaker);
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+
+        inFlight.tryEmitValue("late answer");
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+    }
+
+    @Test
+    void onlyTheTrialDecidesWhileHalfOpen() {
+        // Open for no time, so the next call after opening is the trial
+        CircuitBreaker breaker = new CircuitBreaker(1, 0);
+        Sinks.One<String> stale = start(breaker);
+        fail(breaker);
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+
+        Sinks.One<String> trial = start(breaker);
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+
+        // A call admitted while closed fails; the trial is still running, so no second one
+        stale.tryEmitError(new IllegalStateException("late failure"));
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+        assertInstanceOf(AIUnavailableException.class, outcome(breaker.protect(Mono.just("answer"))));
+
+        trial.tryEmitValue("answer");
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    }
+
+    @Test
+    void failedTrialReopensAndCancelledTrialAllowsAnother() {
+        CircuitBreaker breaker = new CircuitBreaker(1, 0);
+        fail(breaker);
+
+        Sinks.One<String> trial = start(breaker);
+        trial.tryEmitError(new IllegalStateException("still down"));
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+
+        Disposable abandoned = breaker.protect(Sinks.<String>one().asMono()).subscribe(value -> { }, e -> { });
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+        abandoned.dispose();
+
+        succeed(breaker);
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    }
+
+    @Test
+    void failuresFromBeforeOpeningDoNotCountOnceClosedAgain() {
+        CircuitBreaker breaker = new CircuitBreaker(2, 0);
+        Sinks.One<String> stale = start(breaker);
+        fail(breaker);
+        fail(breaker);
+        succeed(breaker);
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+
+        stale.tryEmitError(new IllegalStateException("late failure"));
+        fail(breaker);
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    }
+
+    private static Sinks.One<String> start(CircuitBreaker breaker) {
+        Sinks.One<String> sink = Sinks.one();
+        breaker.protect(sink.asMono()).subscribe(value -> { }, e -> { });
+        return sink;
+    }
+
+    private static void succeed(CircuitBreaker breaker) {
+        outcome(breaker.protect(Mono.just("answer")));
+    }
+
+    private static void fail(CircuitBreaker breaker) {
+        outcome(breaker.protect(Mono.error(new IllegalStateException("Gemini down"))));
+    }
+
+    // The error the call ended with, or null
+    private static Throwable outcome(Mono<String> call) {
+        AtomicReference<Throwable> error = new AtomicReference<>();
+        call.subscribe(value -> { }, error::set);
+        return error.get();
+    }
+}
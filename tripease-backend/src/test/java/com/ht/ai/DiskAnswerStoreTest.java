@@ -0,0 +1,143 @@
+package com.ht.ai;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Optional;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Writes segments to a temporary directory and reopens them as a restart
+ * would: records must come back as written, damaged ones must be rejected by
+ * their checksum, and compaction must keep every live answer.
+ */
+class DiskAnswerStoreTest {
+
+    private static final long HOUR = 3_600_000;
+
+    @TempDir
+    Path directory;
+
+    private DiskAnswerStore store;
+
+    @AfterEach
+    void tearDown() {
+        store.flush();
+    }
+
+    @Test
+    void answersSurviveReopen() {
+        store = open();
+        long expiresAt = System.currentTimeMillis() + HOUR;
+        store.put(key("goa"), "Beaches", expiresAt);
+        store.put(key("paris"), "Museums", expiresAt);
+        store.put(key("goa"), "Beaches and forts", expiresAt);
+        store.put(key("oslo"), "Expired", System.currentTimeMillis() - 1);
+        store.awaitWrites();
+        assertEquals("Beaches and forts", content(key("goa")));
+
+        store = reopen();
+        assertEquals("Beaches and forts", content(key("goa")));
+        assertEquals("Museums", content(key("paris")));
+        assertTrue(store.get(key("oslo")).isEmpty());
+        assertEquals(2, store.metrics().get("entries").intValue());
+    }
+
+    @Test
+    void damagedRecordIsRejectedOnReload() throws IOException {
+        store = open();
+        long expiresAt = System.currentTimeMillis() + HOUR;
+        store.put(key("goa"), "Beaches", expiresAt);
+        store.put(key("paris"), "Museums", expiresAt);
+        store.awaitWrites();
+        store.flush();
+
+        // Flip the last byte of the second record's value
+        Path segment = directory.resolve("segment-1.dat");
+        try (RandomAccessFile file = new RandomAccessFile(segment.toFile(), "rw")) {
+            int first = file.readInt();
+            file.seek(first);
+            int second = file.readInt();
+            long last = first + second - 1L;
+            file.seek(last);
+            int value = file.read();
+            file.seek(last);
+            file.write(value ^ 0xFF);
+        }
+
+        store = open();
+        assertEquals("Beaches", content(key("goa")));
+        assertTrue(store.get(key("paris")).isEmpty());
+        assertEquals(1, store.metrics().get("corruptSegments").intValue());
+
+        // New records overwrite the damaged tail and read back after another restart
+        store.put(key("rome"), "Ruins", expiresAt);
+        store = reopen();
+        assertEquals("Beaches", content(key("goa")));
+        assertEquals("Ruins", content(key("rome")));
+        assertTrue(store.get(key("paris")).isEmpty());
+    }
+
+    @Test
+    void compactionKeepsLiveAnswersAndDeletesSparseSegments() {
+        store = open();
+        long expiresAt = System.currentTimeMillis() + HOUR;
+        // About 100 KB each, so a 1 MB segment holds ten
+        String filler = "x".repeat(100_000);
+        for (int i = 0; i < 12; i++) {
+            store.put(key("city" + i), i + filler, expiresAt);
+        }
+        // Overwriting most of the first segment leaves it sparse
+        for (int i = 0; i < 8; i++) {
+            store.put(key("city" + i), "new" + i + filler, expiresAt);
+        }
+        store.awaitWrites();
+        assertTrue(Files.exists(directory.resolve("segment-1.dat")));
+
+        store.compact();
+        store.awaitWrites();
+        assertFalse(Files.exists(directory.resolve("segment-1.dat")));
+        assertEquals(1, store.metrics().get("compactedSegments").intValue());
+        assertAllLive(filler);
+
+        store = reopen();
+        assertAllLive(filler);
+        assertEquals(12, store.metrics().get("entries").intValue());
+    }
+
+    private void assertAllLive(String filler) {
+        for (int i = 0; i < 12; i++) {
+            String expected = (i < 8 ? "new" + i : String.valueOf(i)) + filler;
+            assertEquals(expected, content(key("city" + i)), "city" + i);
+        }
+    }
+
+    private DiskAnswerStore open() {
+        DiskAnswerStore opened = new DiskAnswerStore(true, directory.toString(), 1, 8);
+        opened.load();
+        return opened;
+    }
+
+    private DiskAnswerStore reopen() {
+        store.awaitWrites();
+        store.flush();
+        return open();
+    }
+
+    private String content(PromptKey key) {
+        Optional<DiskAnswerStore.StoredAnswer> stored = store.get(key);
+        return stored.map(DiskAnswerStore.StoredAnswer::content).orElse(null);
+    }
+
+    private static PromptKey key(String destination) {
+        return new PromptKey(destination, "moderate", "", "gemini-test", 1);
+    }
+}
@@ -0,0 +1,180 @@
+package com.ht.load;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Open-loop load generator for POST /api/ai/recommendation. Requests are fired
+ * at a fixed rate whether or not earlier ones have returned, so a slow server
+ * shows up as latency and in-flight growth rather than as a lower offered load.
+ *
+ * Start the backend with the gemini-stub profile (tune gemini.stub.* for the
+ * upstream being modelled), then run {@code main} from the test classpath:
+ *
+ *   base=http://localhost:8080 email=test@example.com password=Password123
+ *   adminEmail=admin@tripease.com adminPassword=Admin@123
+ *   rps=50 seconds=60 uniquePrompts=true
+ *
+ * With admin credentials the peak values of /api/admin/ai/metrics (Tomcat
+ * threads, DB connections, concurrency limit, breaker) seen during the run are printed too.
+ */
+public class AILoadHarness {
+
+    private static final String[] DESTINATIONS = {"Paris", "Rome", "Tokyo", "Bali", "Goa", "Lisbon", "Kyoto", "Cairo"};
+    private static final String[] BUDGETS = {"budget", "moderate", "luxury"};
+    private static final Pattern TOKEN = Pattern.compile("\"token\"\\s*:\\s*\"([^\"]+)\"");
+    private static final Pattern SECTION = Pattern.compile("\"(\\w+)\"\\s*:\\s*\\{([^{}]*)}");
+    private static final Pattern NUMBER = Pattern.compile("\"(\\w+)\"\\s*:\\s*(-?[0-9.]+)");
+
+    private final HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(5)).build();
+    private final String base;
+    private final ConcurrentLinkedQueue<Long> latenciesMicros = new ConcurrentLinkedQueue<>();
+    private final AtomicLong sent = new AtomicLong();
+    private final AtomicLong errors = new AtomicLong();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger peakInFlight = new AtomicInteger();
+    private final Map<String, Double> peakServerMetrics = new ConcurrentHashMap<>();
+
+    AILoadHarness(String base) {
+        this.base = base;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            String[] pair = arg.split("=", 2);
+            options.put(pair[0], pair.length > 1 ? pair[1] : "true");
+        }
+        AILoadHarness harness = new AILoadHarness(options.getOrDefault("base", "http://localhost:8080"));
+        String token = harness.login(
+                options.getOrDefault("email", "test@example.com"),
+                options.getOrDefault("password", "Password123"));
+        String adminToken = options.containsKey("adminEmail")
+                ? harness.login(options.get("adminEmail"), options.get("adminPassword"))
+                : null;
+
+        harness.run(token, adminToken,
+                Integer.parseInt(options.getOrDefault("rps", "20")),
+                Integer.parseInt(options.getOrDefault("seconds", "30")),
+                Boolean.parseBoolean(options.getOrDefault("uniquePrompts", "false")));
+    }
+
+    void run(String token, String adminToken, int rps, int seconds, boolean uniquePrompts) throws InterruptedException {
+        ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(2);
+        long periodNanos = TimeUnit.SECONDS.toNanos(1) / rps;
+        long started = System.nanoTime();
+
+        scheduler.scheduleAtFixedRate(() -> fire(token, uniquePrompts), 0, periodNanos, TimeUnit.NANOSECONDS);
+        if (adminToken != null) {
+            scheduler.scheduleAtFixedRate(() -> sampleServer(adminToken), 1, 1, TimeUnit.SECONDS);
+        }
+
+        TimeUnit.SECONDS.sleep(seconds);
+        scheduler.shutdownNow();
+
+        // Let requests already sent finish so their latency is counted
+        long drainDeadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(60);
+        while (inFlight.get() > 0 && System.nanoTime() < drainDeadline) {
+            TimeUnit.MILLISECONDS.sleep(50);
+        }
+        report(rps, (System.nanoTime() - started) / 1e9);
+    }
+
+    private void fire(String token, boolean uniquePrompts) {
+        long n = sent.incrementAndGet();
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        String preferences = uniquePrompts ? "load-test " + n : "";
+        String body = String.format("{\"destination\":\"%s\",\"budgetRange\":\"%s\",\"preferences\":\"%s\"}",
+                DESTINATIONS[random.nextInt(DESTINATIONS.length)], BUDGETS[random.nextInt(BUDGETS.length)], preferences);
+
+        HttpRequest request = HttpRequest.newBuilder(URI.create(base + "/api/ai/recommendation"))
+                .timeout(Duration.ofSeconds(120))
+                .header("Content-Type", "application/json")
+                .header("Authorization", "Bearer " + token)
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+
+        peakInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+        long start = System.nanoTime();
+        client.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+                .whenComplete((response, error) -> {
+                    inFlight.decrementAndGet();
+                    latenciesMicros.add((System.nanoTime() - start) / 1_000);
+                    if (error != null || response.statusCode() >= 300) {
+                        errors.incrementAndGet();
+                    }
+                });
+    }
+
+    private void sampleServer(String adminToken) {
+        try {
+            HttpRequest request = HttpRequest.newBuilder(URI.create(base + "/api/admin/ai/metrics"))
+                    .header("Authorization", "Bearer " + adminToken)
+                    .build();
+            String json = client.send(request, HttpResponse.BodyHandlers.ofString()).body();
+            Matcher section = SECTION.matcher(json);
+            while (section.find()) {
+                Matcher number = NUMBER.matcher(section.group(2));
+                while (number.find()) {
+                    peakServerMetrics.merge(section.group(1) + "." + number.group(1),
+                            Double.parseDouble(number.group(2)), Math::max);
+                }
+            }
+        } catch (Exception e) {
+            System.err.println("Metrics sample failed: " + e.getMessage());
+        }
+    }
+
+    private String login(String email, String password) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(base + "/api/auth/login"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(
+                        String.format("{\"email\":\"%s\",\"password\":\"%s\"}", email, password)))
+                .build();
+        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+        Matcher matcher = TOKEN.matcher(response.body());
+        if (response.statusCode() != 200 || !matcher.find()) {
+            throw new IllegalStateException("Login failed for " + email + ": " + response.statusCode());
+        }
+        return matcher.group(1);
+    }
+
+    private void report(int rps, double elapsedSeconds) {
+        long[] latencies = latenciesMicros.stream().mapToLong(Long::longValue).toArray();
+        Arrays.sort(latencies);
+
+        System.out.printf("offered     %d rps for %.1f s (%d sent)%n", rps, elapsedSeconds, sent.get());
+        System.out.printf("completed   %d (%.1f rps), errors %d, still in flight %d%n",
+                latencies.length, latencies.length / elapsedSeconds, errors.get(), inFlight.get());
+        System.out.printf("latency ms  p50 %.1f  p90 %.1f  p99 %.1f  max %.1f%n",
+                percentile(latencies, 0.50), percentile(latencies, 0.90),
+                percentile(latencies, 0.99), percentile(latencies, 1.0));
+        System.out.printf("client      peak in flight %d%n", peakInFlight.get());
+        new TreeMap<>(peakServerMetrics).forEach((name, value) -> System.out.printf("peak        %s %.0f%n", name, value));
+    }
+
+    private static double percentile(long[] sorted, double quantile) {
+        if (sorted.length == 0) {
+            return Double.NaN;
+        }
+        int index = (int) Math.ceil(quantile * sorted.length) - 1;
+        return sorted[Math.max(0, index)] / 1000.0;
+    }
+}
@@ -0,0 +1,172 @@
+package com.ht.repository;
+
+import com.ht.dto.response.ExpenseResponse;
+import com.ht.entity.AIRecommendation;
+import com.ht.entity.Expense;
+import com.ht.entity.Role;
+import com.ht.entity.Trip;
+import com.ht.entity.User;
+import com.ht.mapper.ExpenseMapper;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.cfg.Configuration;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.jpa.repository.support.JpaRepositoryFactory;
+import org.springframework.orm.jpa.JpaTransactionManager;
+import org.springframework.orm.jpa.SharedEntityManagerCreator;
+import org.springframework.orm.jpa.vendor.HibernateJpaDialect;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of listing a trip with 1,000 expenses. {@code entities} replays the old
+ * path (managed entities in a read-write transaction, mapped to responses),
+ * {@code readOnlyEntities} is the same in a read-only transaction, and
+ * {@code projections} is the repository's constructor-expression query. The
+ * GC profiler's {@code gc.alloc.rate.norm} is the heap allocated per request.
+ *
+ * Hibernate runs against in-memory H2 in MySQL mode, with transactions set up
+ * as Spring Boot does, so read-only means no snapshots and no flush.
+ *
+ * Run with: mvn test-compile, then {@code main} from the test classpath.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ExpenseListingBenchmark {
+
+    private static final int EXPENSES = 1_000;
+
+    // A single page, and the whole trip as the listing returned it before pagination
+    @Param({"100", "1000"})
+    private int rows;
+
+    private final ExpenseMapper expenseMapper = new ExpenseMapper();
+
+    private EntityManagerFactory entityManagerFactory;
+    private EntityManager entityManager;
+    private ExpenseRepository expenseRepository;
+    private TransactionTemplate readWrite;
+    private TransactionTemplate readOnly;
+    private Long tripId;
+
+    @Setup
+    public void setUp() {
+        entityManagerFactory = new Configuration()
+                .addAnnotatedClass(User.class)
+                .addAnnotatedClass(Trip.class)
+                .addAnnotatedClass(Expense.class)
+                .addAnnotatedClass(AIRecommendation.class)
+                .setProperty(AvailableSettings.JAKARTA_JDBC_URL, "jdbc:h2:mem:listing;MODE=MySQL;DB_CLOSE_DELAY=-1")
+                .setProperty(AvailableSettings.HBM2DDL_AUTO, "create-drop")
+                .buildSessionFactory();
+
+        JpaTransactionManager transactionManager = new JpaTransactionManager(entityManagerFactory);
+        transactionManager.setJpaDialect(new HibernateJpaDialect());
+        readWrite = new TransactionTemplate(transactionManager);
+        readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+
+        entityManager = SharedEntityManagerCreator.createSharedEntityManager(entityManagerFactory);
+        expenseRepository = new JpaRepositoryFactory(entityManager).getRepository(ExpenseRepository.class);
+
+        tripId = readWrite.execute(status -> seed());
+    }
+
+    @TearDown
+    public void tearDown() {
+        entityManagerFactory.close();
+    }
+
+    @Benchmark
+    public List<ExpenseResponse> entities() {
+        return readWrite.execute(status -> loadEntities());
+    }
+
+    @Benchmark
+    public List<ExpenseResponse> readOnlyEntities() {
+        return readOnly.execute(status -> loadEntities());
+    }
+
+    @Benchmark
+    public List<ExpenseResponse> projections() {
+        return readOnly.execute(status -> expenseRepository.findFirstPageByTripId(tripId, PageRequest.of(0, rows)));
+    }
+
+    // The listing query as it was before it selected into ExpenseResponse
+    private List<ExpenseResponse> loadEntities() {
+        return entityManager.createQuery("SELECT e FROM Expense e WHERE e.trip.id = :tripId "
+                        + "ORDER BY e.expenseDate DESC, e.id DESC", Expense.class)
+                .setParameter("tripId", tripId)
+                .setMaxResults(rows)
+                .getResultList()
+                .stream()
+                .map(expenseMapper::toResponse)
+                .toList();
+    }
+
+    private Long seed() {
+        User user = User.builder()
+                .firstName("Bench")
+                .lastName("User")
+                .email("bench@tripease.com")
+                .password("")
+                .role(Role.USER)
+                .build();
+        entityManager.persist(user);
+
+        LocalDate start = LocalDate.of(2024, 1, 1);
+        Trip trip = Trip.builder()
+                .title("Benchmark trip")
+                .destination("Goa")
+                .startDate(start)
+                .endDate(start.plusDays(30))
+                .status(Trip.TripStatus.PLANNING)
+                .user(user)
+                .build();
+        entityManager.persist(trip);
+
+        for (int i = 0; i < EXPENSES; i++) {
+            entityManager.persist(Expense.builder()
+                    .title("Expense " + i)
+                    .description("Benchmark expense")
+                    .amount(BigDecimal.valueOf(100 + i % 900, 2))
+                    .expenseDate(start.plusDays(i % 30))
+                    .category("FOOD")
+                    .trip(trip)
+                    .build());
+        }
+        return trip.getId();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(ExpenseListingBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+}
@@ -0,0 +1,127 @@
+package com.ht.security;
+
+import com.ht.entity.Role;
+import com.ht.entity.User;
+import com.ht.repository.UserRepository;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.io.Decoders;
+import io.jsonwebtoken.security.Keys;
+import org.mockito.Mockito;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Date;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-request cost of the JWT filter. {@code legacy} replays the old path (three
+ * parses, key and parser rebuilt each time), {@code uncached} verifies once per
+ * request, {@code cached} hits the verified-token cache. The filtered paths build
+ * the principal from claims, as issued tokens do.
+ *
+ * Run with: mvn test-compile, then {@code main} from the test classpath.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JwtAuthenticationFilterBenchmark {
+
+    private static final String SECRET = "404E635266556A586E3272357538782F413F4428472B4B6250645367566B5970";
+
+    private final UserDetailsService userDetailsService = username -> User.builder()
+            .id(1L)
+            .email(username)
+            .password("")
+            .role(Role.USER)
+            .build();
+
+    private JwtAuthenticationFilter cachedFilter;
+    private JwtAuthenticationFilter uncachedFilter;
+    private String token;
+
+    @Setup
+    public void setUp() {
+        UserRepository userRepository = Mockito.mock(UserRepository.class);
+        Mockito.when(userRepository.findTokenVersionById(1L)).thenReturn(Optional.of(0L));
+        TokenVersionRegistry tokenVersionRegistry = new TokenVersionRegistry(userRepository, TimeUnit.HOURS.toMillis(1));
+
+        JwtUtil cachedJwtUtil = jwtUtil(10_000);
+        cachedFilter = new JwtAuthenticationFilter(cachedJwtUtil, userDetailsService, tokenVersionRegistry);
+        uncachedFilter = new JwtAuthenticationFilter(jwtUtil(0), userDetailsService, tokenVersionRegistry);
+        token = cachedJwtUtil.generateToken((User) userDetailsService.loadUserByUsername("bench@tripease.com"));
+    }
+
+    @Benchmark
+    public Object legacy() {
+        String email = legacyParse().getSubject();
+        Object user = userDetailsService.loadUserByUsername(email);
+        boolean valid = legacyParse().getSubject().equals(email)
+                && !legacyParse().getExpiration().before(new Date());
+        return valid ? user : null;
+    }
+
+    @Benchmark
+    public Object uncached() throws Exception {
+        return filter(uncachedFilter);
+    }
+
+    @Benchmark
+    public Object cached() throws Exception {
+        return filter(cachedFilter);
+    }
+
+    private Object filter(JwtAuthenticationFilter filter) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/dashboard");
+        request.addHeader("Authorization", "Bearer " + token);
+        try {
+            filter.doFilter(request, new MockHttpServletResponse(), new MockFilterChain());
+            return SecurityContextHolder.getContext().getAuthentication();
+        } finally {
+            SecurityContextHolder.clearContext();
+        }
+    }
+
+    private Claims legacyParse() {
+        return Jwts.parserBuilder()
+                .setSigningKey(Keys.hmacShaKeyFor(Decoders.BASE64.decode(SECRET)))
+                .build()
+                .parseClaimsJws(token)
+                .getBody();
+    }
+
+    private static JwtUtil jwtUtil(int cacheEntries) {
+        JwtUtil jwtUtil = new JwtUtil(new VerifiedTokenCache(cacheEntries));
+        ReflectionTestUtils.setField(jwtUtil, "secretKey", SECRET);
+        ReflectionTestUtils.setField(jwtUtil, "jwtExpiration", TimeUnit.HOURS.toMillis(1));
+        jwtUtil.init();
+        return jwtUtil;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(JwtAuthenticationFilterBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,51 @@
+package com.ht.security;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import com.ht.repository.UserRepository;
+
+/**
+ * A version check that read the database just before a logout committed
+ * finishes after the logout has stored the new version; the revoked token
+ * must stay rejected without waiting for the refresh interval.
+ */
+class TokenVersionRegistryTest {
+
+    private static final Long USER_ID = 1L;
+
+    private final UserRepository userRepository = Mockito.mock(UserRepository.class);
+    private final TokenVersionRegistry registry = new TokenVersionRegistry(userRepository, TimeUnit.HOURS.toMillis(1));
+
+    @Test
+    void staleReadDoesNotRestoreRevokedVersion() {
+        // The check reads version 0, then the logout commits 1 before the check stores what it read
+        Mockito.when(userRepository.findTokenVersionById(USER_ID)).thenAnswer(invocation -> {
+            registry.update(USER_ID, 1);
+            return Optional.of(0L);
+        });
+        assertFalse(registry.isCurrent(USER_ID, 0));
+
+        Mockito.when(userRepository.findTokenVersionById(USER_ID)).thenReturn(Optional.of(1L));
+        assertFalse(registry.isCurrent(USER_ID, 0));
+        assertTrue(registry.isCurrent(USER_ID, 1));
+    }
+
+    @Test
+    void logoutRejectsRememberedVersionWithoutReading() {
+        Mockito.when(userRepository.findTokenVersionById(USER_ID)).thenReturn(Optional.of(0L));
+        assertTrue(registry.isCurrent(USER_ID, 0));
+
+        registry.update(USER_ID, 1);
+        Mockito.when(userRepository.findTokenVersionById(USER_ID)).thenReturn(Optional.of(1L));
+        assertFalse(registry.isCurrent(USER_ID, 0));
+        assertTrue(registry.isCurrent(USER_ID, 1));
+        Mockito.verify(userRepository, Mockito.times(2)).findTokenVersionById(USER_ID);
+    }
+}
@@ -0,0 +1,143 @@
+package com.ht.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ht.dto.request.ExpenseRequest;
+import com.ht.dto.response.ExpenseImportResponse;
+import com.ht.exception.ImportFormatException;
+import com.ht.repository.ExpenseBatchRepository;
+import com.ht.repository.TripRepository;
+import com.ht.security.CurrentUserResolver;
+
+import jakarta.validation.Validation;
+import jakarta.validation.Validator;
+
+/**
+ * Parses CSV and NDJSON bodies against a recording batch writer: valid rows
+ * are written in batches, invalid ones are reported by the line they start
+ * on, and reading stops at the row limit with a note where it stopped.
+ */
+class ExpenseImportServiceTest {
+
+    private static final Long USER_ID = 7L;
+    private static final Long TRIP_ID = 3L;
+
+    private final TripRepository tripRepository = mock(TripRepository.class);
+    private final ExpenseBatchRepository expenseBatchRepository = mock(ExpenseBatchRepository.class);
+    private final CurrentUserResolver currentUserResolver = mock(CurrentUserResolver.class);
+    private final List<List<String>> batches = new ArrayList<>();
+
+    private ExpenseImportService importService;
+
+    @BeforeEach
+    void setUp() {
+        Validator validator = Validation.buildDefaultValidatorFactory().getValidator();
+        importService = new ExpenseImportService(tripRepository, expenseBatchRepository, currentUserResolver,
+                validator, new ObjectMapper().findAndRegisterModules());
+        ReflectionTestUtils.setField(importService, "batchSize", 2);
+        ReflectionTestUtils.setField(importService, "maxRows", 100);
+        ReflectionTestUtils.setField(importService, "maxLineLength", 1000);
+
+        when(currentUserResolver.getCurrentUserId()).thenReturn(USER_ID);
+        when(tripRepository.existsByIdAndUserId(TRIP_ID, USER_ID)).thenReturn(true);
+        // The pending list is cleared after each batch, so keep the titles written
+        doAnswer(invocation -> {
+            List<ExpenseRequest> batch = invocation.getArgument(2);
+            batches.add(batch.stream().map(ExpenseRequest::getTitle).toList());
+            return null;
+        }).when(expenseBatchRepository).insertAll(eq(USER_ID), eq(TRIP_ID), anyList());
+    }
+
+    @Test
+    void csvRowsAreCheckedAndRejectedByTheLineTheyStartOn() throws IOException {
+        ExpenseImportResponse response = importService.importCsv(TRIP_ID, body(
+                "Title,Amount,Date,Category,Description\n"
+                        + "Lunch,12.50,2024-05-01,Food,\n"
+                        + "Taxi,lots,2024-05-01,Transport,\n"
+                        + "Hotel,120,2024-05-01,Stay,\"Two nights,\nbreakfast included\"\n"
+                        + ",5,2024-05-02,Food,\n"
+                        + "\n"
+                        + "Museum,15,05/03/2024,Sights,\n"
+                        + "Dinner,30,2024-05-03,Food,\n"));
+
+        assertEquals(3, response.getImported());
+        assertEquals(3, response.getRejected());
+        assertEquals(List.of(List.of("Lunch", "Hotel"), List.of("Dinner")), batches);
+        assertEquals(List.of(3L, 6L, 8L), lines(response));
+        assertEquals("Invalid amount 'lots'", response.getErrors().get(0).getMessage());
+        assertEquals("Title is required", response.getErrors().get(1).getMessage());
+    }
+
+    @Test
+    void csvStopsAtTheRowLimit() throws IOException {
+        ReflectionTestUtils.setField(importService, "maxRows", 2);
+        ExpenseImportResponse response = importService.importCsv(TRIP_ID, body(
+                "title,amount,expense_date,category\n"
+                        + "Lunch,12.50,2024-05-01,Food\n"
+                        + "Taxi,8,2024-05-01,Transport\n"
+                        + "Dinner,30,2024-05-03,Food\n"));
+
+        assertEquals(2, response.getImported());
+        assertEquals(0, response.getRejected());
+        assertEquals(List.of(4L), lines(response));
+        assertEquals("Import stopped at the limit of 2 rows; the remaining rows were not read",
+                response.getErrors().get(0).getMessage());
+    }
+
+    @Test
+    void csvWithoutRequiredColumnsIsRefused() {
+        assertThrows(ImportFormatException.class,
+                () -> importService.importCsv(TRIP_ID, body("title,amount\nLunch,12.50\n")));
+    }
+
+    @Test
+    void ndjsonRejectsBadLinesAndStopsAtTheRowLimit() throws IOException {
+        ReflectionTestUtils.setField(importService, "maxRows", 3);
+        ExpenseImportResponse response = importService.importNdjson(TRIP_ID, body(
+                "{\"title\":\"Lunch\",\"amount\":12.5,\"expenseDate\":\"2024-05-01\",\"category\":\"Food\"}\r\n"
+                        + "{\"title\":\"Taxi\",\n"
+                        + "\n"
+                        + "{\"title\":\"Hotel\",\"amount\":120,\"expenseDate\":\"2024-05-01\",\"category\":\"Stay\"}\n"
+                        + "{\"title\":\"Dinner\",\"amount\":30,\"expenseDate\":\"2024-05-03\",\"category\":\"Food\"}\n"));
+
+        assertEquals(2, response.getImported());
+        assertEquals(1, response.getRejected());
+        assertEquals(List.of(List.of("Lunch", "Hotel")), batches);
+        assertEquals(List.of(2L, 5L), lines(response));
+    }
+
+    @Test
+    void ndjsonLineOverTheLimitIsRefused() {
+        ReflectionTestUtils.setField(importService, "maxLineLength", 50);
+        String longLine = "{\"title\":\"" + "x".repeat(60) + "\"}\n";
+        ImportFormatException e = assertThrows(ImportFormatException.class,
+                () -> importService.importNdjson(TRIP_ID, body("\n" + longLine)));
+        assertEquals("Line 2 is longer than 50 characters", e.getMessage());
+    }
+
+    private static List<Long> lines(ExpenseImportResponse response) {
+        return response.getErrors().stream().map(ExpenseImportResponse.RowError::getLine).toList();
+    }
+
+    private static InputStream body(String content) {
+        return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,136 @@
+package com.ht.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.when;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.ht.dto.request.ExpenseRequest;
+import com.ht.entity.Role;
+import com.ht.entity.Trip;
+import com.ht.entity.User;
+import com.ht.mapper.ExpenseMapper;
+import com.ht.repository.ExpenseRepository;
+import com.ht.repository.SpendRollupRepository;
+import com.ht.repository.TripRepository;
+import com.ht.repository.UserRepository;
+import com.ht.security.CurrentUserResolver;
+
+/**
+ * Many threads add and delete expenses of one trip at once, each call in its
+ * own transaction as in production; the stored total must equal both the sum
+ * the threads expect and the sum of the expense rows left behind.
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@TestPropertySource(properties = {
+        "spring.datasource.url=jdbc:h2:mem:totals;MODE=MySQL;LOCK_TIMEOUT=10000;DB_CLOSE_DELAY=-1",
+        "spring.jpa.hibernate.ddl-auto=create-drop"
+})
+@Import({ExpenseService.class, ExpenseMapper.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class ExpenseTotalsConcurrencyTest {
+
+    private static final int THREADS = 8;
+    private static final int EXPENSES_PER_THREAD = 60;
+
+    @Autowired
+    private ExpenseService expenseService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private TripRepository tripRepository;
+
+    @Autowired
+    private ExpenseRepository expenseRepository;
+
+    @MockBean
+    private CurrentUserResolver currentUserResolver;
+
+    // The rollup tables are not entities, so the schema here has none
+    @MockBean
+    private SpendRollupRepository spendRollupRepository;
+
+    @Test
+    void totalStaysExactUnderParallelAddsAndDeletes() throws Exception {
+        User user = userRepository.save(User.builder()
+                .firstName("Concurrent")
+                .lastName("Writer")
+                .email("totals@tripease.com")
+                .password("")
+                .role(Role.USER)
+                .build());
+        Trip trip = tripRepository.save(Trip.builder()
+                .title("Shared trip")
+                .destination("Goa")
+                .startDate(LocalDate.of(2024, 1, 1))
+                .endDate(LocalDate.of(2024, 1, 10))
+                .totalExpenses(BigDecimal.ZERO)
+                .status(Trip.TripStatus.PLANNING)
+                .user(user)
+                .build());
+        when(currentUserResolver.getCurrentUserId()).thenReturn(user.getId());
+
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<BigDecimal>> writers = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            int thread = t;
+            writers.add(pool.submit(() -> {
+                start.await();
+                BigDecimal kept = BigDecimal.ZERO;
+                for (int i = 0; i < EXPENSES_PER_THREAD; i++) {
+                    BigDecimal amount = BigDecimal.valueOf(100 + thread * 37 + i * 13, 2);
+                    Long expenseId = expenseService.addExpense(trip.getId(), expense(amount)).getId();
+                    // Every third expense is deleted again, so totals move both ways
+                    if (i % 3 == 0) {
+                        expenseService.deleteExpense(expenseId);
+                    } else {
+                        kept = kept.add(amount);
+                    }
+                }
+                return kept;
+            }));
+        }
+        start.countDown();
+
+        BigDecimal expected = BigDecimal.ZERO;
+        for (Future<BigDecimal> writer : writers) {
+            expected = expected.add(writer.get(60, TimeUnit.SECONDS));
+        }
+        pool.shutdown();
+
+        BigDecimal stored = tripRepository.findTotalExpensesById(trip.getId());
+        assertEquals(0, expected.compareTo(stored), "stored total " + stored + ", expected " + expected);
+        assertEquals(0, expenseRepository.sumExpensesByTripId(trip.getId()).compareTo(stored));
+    }
+
+    private static ExpenseRequest expense(BigDecimal amount) {
+        ExpenseRequest request = new ExpenseRequest();
+        request.setTitle("Expense");
+        request.setAmount(amount);
+        request.setExpenseDate(LocalDate.of(2024, 1, 2));
+        request.setCategory("Food");
+        return request;
+    }
+}
@@ -0,0 +1,193 @@
+package com.ht.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.when;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.ht.dto.request.ExpenseRequest;
+import com.ht.dto.request.TripRequest;
+import com.ht.dto.response.SpendSummary;
+import com.ht.dto.response.TripResponse;
+import com.ht.entity.Role;
+import com.ht.entity.Trip.TripStatus;
+import com.ht.entity.User;
+import com.ht.mapper.ExpenseMapper;
+import com.ht.mapper.TripMapper;
+import com.ht.repository.ExpenseBatchRepository;
+import com.ht.repository.SpendRollupRepository;
+import com.ht.repository.UserRepository;
+import com.ht.security.CurrentUserResolver;
+
+/**
+ * Runs every kind of write the spend rollups follow (expense add, delete and
+ * import, trip create, move and delete), each in its own transaction as in
+ * production, then checks the incrementally kept rollups against a rebuild
+ * from the expense rows.
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@TestPropertySource(properties = {
+        "spring.datasource.url=jdbc:h2:mem:rollups;MODE=MySQL;NON_KEYWORDS=MONTH;DB_CLOSE_DELAY=-1",
+        "spring.jpa.hibernate.ddl-auto=create-drop"
+})
+@Import({ExpenseService.class, ExpenseMapper.class, TripService.class, TripMapper.class,
+        ExpenseBatchRepository.class, SpendRollupRepository.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class SpendRollupConsistencyTest {
+
+    // As in schema.sql; the rollup tables are not entities
+    private static final String[] ROLLUP_TABLES = {
+            "CREATE TABLE IF NOT EXISTS expense_category_rollup (user_id BIGINT NOT NULL, category VARCHAR(100) NOT NULL, "
+                    + "total_minor BIGINT NOT NULL DEFAULT 0, expense_count BIGINT NOT NULL DEFAULT 0, "
+                    + "PRIMARY KEY (user_id, category))",
+            "CREATE TABLE IF NOT EXISTS expense_month_rollup (user_id BIGINT NOT NULL, month DATE NOT NULL, "
+                    + "total_minor BIGINT NOT NULL DEFAULT 0, expense_count BIGINT NOT NULL DEFAULT 0, "
+                    + "PRIMARY KEY (user_id, month))",
+            "CREATE TABLE IF NOT EXISTS trip_status_rollup (user_id BIGINT NOT NULL, status VARCHAR(20) NOT NULL, "
+                    + "trip_count BIGINT NOT NULL DEFAULT 0, total_minor BIGINT NOT NULL DEFAULT 0, "
+                    + "PRIMARY KEY (user_id, status))",
+            "CREATE TABLE IF NOT EXISTS destination_rollup (user_id BIGINT NOT NULL, destination VARCHAR(255) NOT NULL, "
+                    + "trip_count BIGINT NOT NULL DEFAULT 0, total_minor BIGINT NOT NULL DEFAULT 0, "
+                    + "PRIMARY KEY (user_id, destination))"
+    };
+
+    @Autowired
+    private ExpenseService expenseService;
+
+    @Autowired
+    private TripService tripService;
+
+    @Autowired
+    private ExpenseBatchRepository expenseBatchRepository;
+
+    @Autowired
+    private SpendRollupRepository spendRollupRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @MockBean
+    private CurrentUserResolver currentUserResolver;
+
+    @BeforeEach
+    void createRollupTables() {
+        for (String sql : ROLLUP_TABLES) {
+            jdbcTemplate.execute(sql);
+        }
+    }
+
+    @Test
+    void incrementalRollupsMatchRebuild() {
+        User user = userRepository.save(User.builder()
+                .firstName("Rollup")
+                .lastName("Writer")
+                .email("rollups@tripease.com")
+                .password("")
+                .role(Role.USER)
+                .build());
+        when(currentUserResolver.getCurrentUserId()).thenReturn(user.getId());
+        when(currentUserResolver.getCurrentUserReference()).thenReturn(user);
+
+        TripResponse goaTrip = tripService.createTrip(trip("Goa", TripStatus.PLANNING));
+        Long goa = goaTrip.getId();
+        Long paris = tripService.createTrip(trip("Paris", TripStatus.PLANNING)).getId();
+        Long rome = tripService.createTrip(trip("Rome", TripStatus.ONGOING)).getId();
+
+        expenseService.addExpense(goa, expense("Food", "10.50", "2024-01-05"));
+        expenseService.addExpense(goa, expense("Hotel", "100.00", "2024-02-01"));
+        Long deleted = expenseService.addExpense(goa, expense("Food", "2.00", "2024-01-20")).getId();
+        expenseService.deleteExpense(deleted);
+
+        expenseService.addExpense(paris, expense("Food", "5.25", "2024-01-07"));
+        expenseBatchRepository.insertAll(user.getId(), paris, List.of(
+                expense("Transport", "20.00", "2024-03-01"),
+                expense("Food", "1.10", "2024-03-02")));
+
+        expenseService.addExpense(rome, expense("Hotel", "50.00", "2024-01-10"));
+        tripService.deleteTrip(rome);
+
+        // A drifted stored total must not leak into the rollups when the trip moves
+        jdbcTemplate.update("UPDATE trips SET total_expenses = total_expenses + 7 WHERE id = ?", goa);
+        TripRequest move = new TripRequest();
+        move.setStatus(TripStatus.COMPLETED);
+        move.setDestination("Goa, India");
+        move.setVersion(goaTrip.getVersion());
+        tripService.updateTrip(goa, move);
+
+        assertEquals(List.of(
+                        summary("Hotel", "100.00", 1),
+                        summary("Transport", "20.00", 1),
+                        summary("Food", "16.85", 3)),
+                spendRollupRepository.findByCategory(user.getId()));
+        assertEquals(List.of(
+                        summary("COMPLETED", "110.50", 1),
+                        summary("PLANNING", "26.35", 1)),
+                spendRollupRepository.findByTripStatus(user.getId()));
+
+        List<String> incremental = rollups(user.getId());
+        spendRollupRepository.rebuild(user.getId());
+        assertEquals(rollups(user.getId()), incremental);
+    }
+
+    // Every non-empty rollup row of the user; rows a rebuild would not create are all zero
+    private List<String> rollups(Long userId) {
+        List<String> rows = new ArrayList<>();
+        rows.addAll(rows("SELECT 'category', category, total_minor, expense_count FROM expense_category_rollup "
+                + "WHERE user_id = ? AND (total_minor <> 0 OR expense_count <> 0) ORDER BY category", userId));
+        rows.addAll(rows("SELECT 'month', month, total_minor, expense_count FROM expense_month_rollup "
+                + "WHERE user_id = ? AND (total_minor <> 0 OR expense_count <> 0) ORDER BY month", userId));
+        rows.addAll(rows("SELECT 'status', status, total_minor, trip_count FROM trip_status_rollup "
+                + "WHERE user_id = ? AND (total_minor <> 0 OR trip_count <> 0) ORDER BY status", userId));
+        rows.addAll(rows("SELECT 'destination', destination, total_minor, trip_count FROM destination_rollup "
+                + "WHERE user_id = ? AND (total_minor <> 0 OR trip_count <> 0) ORDER BY destination", userId));
+        return rows;
+    }
+
+    private List<String> rows(String sql, Long userId) {
+        return jdbcTemplate.query(sql, (rs, rowNum) ->
+                rs.getString(1) + " " + rs.getString(2) + " " + rs.getLong(3) + " " + rs.getLong(4), userId);
+    }
+
+    private static TripRequest trip(String destination, TripStatus status) {
+        TripRequest request = new TripRequest();
+        request.setTitle(destination + " trip");
+        request.setDestination(destination);
+        request.setStartDate(LocalDate.of(2024, 1, 1));
+        request.setEndDate(LocalDate.of(2024, 3, 31));
+        request.setBudget(new BigDecimal("1000.00"));
+        request.setStatus(status);
+        return request;
+    }
+
+    private static ExpenseRequest expense(String category, String amount, String date) {
+        ExpenseRequest request = new ExpenseRequest();
+        request.setTitle(category);
+        request.setAmount(new BigDecimal(amount));
+        request.setExpenseDate(LocalDate.parse(date));
+        request.setCategory(category);
+        return request;
+    }
+
+    private static SpendSummary summary(String key, String total, long count) {
+        return new SpendSummary(key, new BigDecimal(total), count);
+    }
+}
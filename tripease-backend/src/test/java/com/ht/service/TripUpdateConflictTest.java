@@ -0,0 +1,94 @@
+package com.ht.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.when;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.ht.dto.request.TripRequest;
+import com.ht.dto.response.TripResponse;
+import com.ht.entity.Role;
+import com.ht.entity.Trip.TripStatus;
+import com.ht.entity.User;
+import com.ht.mapper.TripMapper;
+import com.ht.repository.SpendRollupRepository;
+import com.ht.repository.UserRepository;
+import com.ht.security.CurrentUserResolver;
+
+/**
+ * Two clients read the same trip and both send an edit; the second edit was
+ * based on a version the first has replaced, so it must be refused and the
+ * first edit kept.
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@TestPropertySource(properties = {
+        "spring.datasource.url=jdbc:h2:mem:conflicts;MODE=MySQL;DB_CLOSE_DELAY=-1",
+        "spring.jpa.hibernate.ddl-auto=create-drop"
+})
+@Import({TripService.class, TripMapper.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class TripUpdateConflictTest {
+
+    @Autowired
+    private TripService tripService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @MockBean
+    private CurrentUserResolver currentUserResolver;
+
+    // The rollup tables are not entities, so the schema here has none
+    @MockBean
+    private SpendRollupRepository spendRollupRepository;
+
+    @Test
+    void editOfAnOlderVersionIsRefused() {
+        User user = userRepository.save(User.builder()
+                .firstName("Conflicting")
+                .lastName("Editor")
+                .email("conflicts@tripease.com")
+                .password("")
+                .role(Role.USER)
+                .build());
+        when(currentUserResolver.getCurrentUserId()).thenReturn(user.getId());
+        when(currentUserResolver.getCurrentUserReference()).thenReturn(user);
+
+        TripRequest create = new TripRequest();
+        create.setTitle("Goa trip");
+        create.setDestination("Goa");
+        create.setStartDate(LocalDate.now());
+        create.setEndDate(LocalDate.now().plusDays(5));
+        create.setBudget(new BigDecimal("1000.00"));
+        create.setStatus(TripStatus.PLANNING);
+        TripResponse read = tripService.createTrip(create);
+
+        TripRequest first = new TripRequest();
+        first.setTitle("Goa with friends");
+        first.setVersion(read.getVersion());
+        TripResponse updated = tripService.updateTrip(read.getId(), first);
+
+        TripRequest second = new TripRequest();
+        second.setTitle("Goa alone");
+        second.setVersion(read.getVersion());
+        assertThrows(OptimisticLockingFailureException.class, () -> tripService.updateTrip(read.getId(), second));
+
+        TripResponse current = tripService.getTripById(read.getId());
+        assertEquals("Goa with friends", current.getTitle());
+        assertEquals(updated.getVersion(), current.getVersion());
+    }
+}
@@ -0,0 +1,80 @@
+package com.ht.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.ht.exception.ImportFormatException;
+
+/**
+ * The RFC 4180 cases the parser handles by hand, and the line numbers it
+ * reports for records that span several lines.
+ */
+class CsvReaderTest {
+
+    private static final int MAX_RECORD_LENGTH = 1000;
+
+    @Test
+    void readsPlainRecordsWithEitherLineEnding() throws IOException {
+        CsvReader csv = reader("title,amount\r\nLunch,12.50\nTaxi,8\n");
+        assertEquals(List.of("title", "amount"), csv.next());
+        assertEquals(List.of("Lunch", "12.50"), csv.next());
+        assertEquals(List.of("Taxi", "8"), csv.next());
+        assertNull(csv.next());
+    }
+
+    @Test
+    void readsLastRecordWithoutLineEndAndKeepsEmptyFields() throws IOException {
+        CsvReader csv = reader("a,,c\n,\nlast");
+        assertEquals(List.of("a", "", "c"), csv.next());
+        assertEquals(List.of("", ""), csv.next());
+        assertEquals(List.of("last"), csv.next());
+        assertNull(csv.next());
+    }
+
+    @Test
+    void quotedFieldsHoldCommasQuotesAndLineBreaks() throws IOException {
+        CsvReader csv = reader("\"Dinner, drinks\",\"The \"\"best\"\" bar\",\"two\r\nlines\"\n");
+        assertEquals(List.of("Dinner, drinks", "The \"best\" bar", "two\r\nlines"), csv.next());
+        assertNull(csv.next());
+    }
+
+    @Test
+    void recordLineIsWhereAMultiLineRecordStarts() throws IOException {
+        CsvReader csv = reader("header\n\"first\nsecond\nthird\"\nnext\n");
+        csv.next();
+        assertEquals(1, csv.getRecordLine());
+        assertEquals(List.of("first\nsecond\nthird"), csv.next());
+        assertEquals(2, csv.getRecordLine());
+        assertEquals(List.of("next"), csv.next());
+        assertEquals(5, csv.getRecordLine());
+    }
+
+    @Test
+    void unterminatedQuoteIsRejectedWithItsLine() throws IOException {
+        CsvReader csv = reader("ok\n\"never closed,\nstill open");
+        csv.next();
+        ImportFormatException e = assertThrows(ImportFormatException.class, csv::next);
+        assertTrue(e.getMessage().contains("line 2"), e.getMessage());
+    }
+
+    @Test
+    void recordOverTheLimitIsRejected() throws IOException {
+        String limit = "x".repeat(MAX_RECORD_LENGTH - 1);
+        CsvReader csv = reader(limit + "\n" + limit + "xx\n");
+        assertEquals(List.of(limit), csv.next());
+        ImportFormatException e = assertThrows(ImportFormatException.class, csv::next);
+        assertTrue(e.getMessage().contains("line 2"), e.getMessage());
+    }
+
+    private static CsvReader reader(String input) {
+        return new CsvReader(new StringReader(input), MAX_RECORD_LENGTH);
+    }
+}
@@ -1,6 +1,7 @@
 import { format } from 'date-fns';
 import { useState } from 'react';
 import toast from 'react-hot-toast';
+import aiService from '../services/aiService';
 import {
   FiBookmark,
   FiCalendar,
@@ -17,9 +18,30 @@ import {
 const RecommendationCard = ({ recommendation, index }) => {
   const [expanded, setExpanded] = useState(false);
   const [saved, setSaved] = useState(false);
+  // Listings only carry a preview; the full content is fetched on first expand
+  const [content, setContent] = useState(recommendation.content);
 
-  const handleShare = () => {
-    navigator.clipboard.writeText(recommendation.content);
+  const loadContent = async () => {
+    if (content != null) return content;
+    try {
+      const full = await aiService.getRecommendationById(recommendation.id);
+      setContent(full.content);
+      return full.content;
+    } catch (error) {
+      toast.error('Failed to load recommendation');
+      return null;
+    }
+  };
+
+  const handleExpand = async () => {
+    if (!expanded && (await loadContent()) == null) return;
+    setExpanded(!expanded);
+  };
+
+  const handleShare = async () => {
+    const text = await loadContent();
+    if (text == null) return;
+    navigator.clipboard.writeText(text);
     toast.success('Recommendation copied to clipboard!');
   };
 
@@ -53,7 +75,7 @@ const RecommendationCard = ({ recommendation, index }) => {
     };
   };
 
-  const parsed = parseContent(recommendation.content);
+  const parsed = parseContent(content);
 
   return (
     <div 
@@ -126,7 +148,7 @@ const RecommendationCard = ({ recommendation, index }) => {
       <div className="p-6">
         {!expanded ? (
           <p className="text-gray-700 leading-relaxed line-clamp-3">
-            {recommendation.content}
+            {content ?? recommendation.contentPreview}
           </p>
         ) : (
           <div className="space-y-4">
@@ -145,7 +167,7 @@ const RecommendationCard = ({ recommendation, index }) => {
               ))
             ) : (
               <p className="text-gray-700 leading-relaxed whitespace-pre-line">
-                {recommendation.content}
+                {content}
               </p>
             )}
           </div>
@@ -153,7 +175,7 @@ const RecommendationCard = ({ recommendation, index }) => {
 
         {/* Expand/Collapse Button */}
         <button
-          onClick={() => setExpanded(!expanded)}
+          onClick={handleExpand}
           className="mt-4 flex items-center space-x-2 text-purple-600 hover:text-purple-700 font-medium transition-colors"
         >
           <span>{expanded ? 'Show less' : 'Read more'}</span>
@@ -5,7 +5,7 @@ import TripModal from '../components/TripModal';
 import { useApi } from '../hooks/useApi';
 
 const Trips = () => {
-  const { get, post, put, delete: deleteTrip, loading } = useApi();
+  const { getAll, post, put, delete: deleteTrip, loading } = useApi();
   const [trips, setTrips] = useState([]);
   const [isModalOpen, setIsModalOpen] = useState(false);
   const [selectedTrip, setSelectedTrip] = useState(null);
@@ -18,7 +18,7 @@ const Trips = () => {
   const fetchTrips = async () => {
     setError(null);
     console.log('Fetching trips...');
-    const { data, error } = await get('/trips');
+    const { data, error } = await getAll('/trips');
     if (data) {
       console.log('Trips fetched:', data);
       setTrips(data);
@@ -46,7 +46,7 @@ const Trips = () => {
 
   const handleUpdateTrip = async (tripData) => {
     console.log('Updating trip:', selectedTrip.id, 'with data:', tripData);
-    const { data, error } = await put(`/trips/${selectedTrip.id}`, tripData, {
+    const { data, error } = await put(`/trips/${selectedTrip.id}`, { ...tripData, version: selectedTrip.version }, {
       showSuccessToast: true,
       successMessage: 'Trip updated successfully!'
     });
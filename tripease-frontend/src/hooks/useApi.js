@@ -2,6 +2,9 @@ import { useState } from 'react';
 import axiosInstance from '../api/axiosInstance';
 import toast from 'react-hot-toast';
 
+// Largest page the API serves
+const MAX_PAGE_SIZE = 100;
+
 export const useApi = () => {
   const [loading, setLoading] = useState(false);
   const [error, setError] = useState(null);
@@ -22,7 +25,7 @@ export const useApi = () => {
         toast.success(options.successMessage || 'Operation successful');
       }
       
-      return { data: response.data, error: null };
+      return { data: response.data, error: null, ...(options.withHeaders ? { headers: response.headers } : {}) };
     } catch (err) {
       const errorMessage = err.response?.data?.message || err.message || 'An error occurred';
       setError(errorMessage);
@@ -37,10 +40,35 @@ export const useApi = () => {
     }
   };
 
+  // One page of a cursor-paginated listing; nextCursor is null on the last page
+  const getPage = async (url, cursor = null, options = {}) => {
+    const params = { ...options.params, ...(cursor ? { cursor } : {}) };
+    const { data, error, headers } = await request('get', url, null, { ...options, params, withHeaders: true });
+    return { data, error, nextCursor: headers?.['x-next-cursor'] ?? null };
+  };
+
+  // Follows the cursor through every page of a listing
+  const getAll = async (url, options = {}) => {
+    let items = [];
+    let cursor = null;
+    do {
+      const { data, error, nextCursor } = await getPage(url, cursor, {
+        ...options,
+        params: { size: MAX_PAGE_SIZE, ...options.params }
+      });
+      if (error) return { data: null, error };
+      items = items.concat(data);
+      cursor = nextCursor;
+    } while (cursor);
+    return { data: items, error: null };
+  };
+
   return {
     loading,
     error,
     get: (url, options) => request('get', url, null, options),
+    getPage,
+    getAll,
     post: (url, data, options) => request('post', url, data, options),
     put: (url, data, options) => request('put', url, data, options),
     delete: (url, options) => request('delete', url, null, options)
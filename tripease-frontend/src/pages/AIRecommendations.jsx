@@ -15,8 +15,9 @@ import RecommendationCard from '../components/RecommendationCard';
 import { useApi } from '../hooks/useApi';
 
 const AIRecommendations = () => {
-  const { post, get, loading } = useApi();
+  const { post, getPage, loading } = useApi();
   const [recommendations, setRecommendations] = useState([]);
+  const [nextCursor, setNextCursor] = useState(null);
   const [loadingAI, setLoadingAI] = useState(false);
   const [formData, setFormData] = useState({
     destination: '',
@@ -46,9 +47,18 @@ const AIRecommendations = () => {
   }, []);
 
   const fetchRecommendations = async () => {
-    const { data } = await get('/ai/recommendations');
+    const { data, nextCursor } = await getPage('/ai/recommendations');
     if (data) {
       setRecommendations(data);
+      setNextCursor(nextCursor);
+    }
+  };
+
+  const loadMoreRecommendations = async () => {
+    const { data, nextCursor: cursor } = await getPage('/ai/recommendations', nextCursor);
+    if (data) {
+      setRecommendations(prev => [...prev, ...data]);
+      setNextCursor(cursor);
     }
   };
 
@@ -379,6 +389,15 @@ const AIRecommendations = () => {
                 index={index}
               />
             ))}
+            {nextCursor && (
+              <button
+                onClick={loadMoreRecommendations}
+                disabled={loading}
+                className="w-full py-3 border-2 border-purple-200 text-purple-700 rounded-xl font-medium hover:bg-purple-50 transition-colors disabled:opacity-50"
+              >
+                {loading ? 'Loading...' : 'Load more'}
+              </button>
+            )}
           </div>
         )}
       </div>
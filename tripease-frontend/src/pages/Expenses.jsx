@@ -6,7 +6,7 @@ import { useAuth } from '../hooks/useAuth';
 
 const Expenses = () => {
   const { user } = useAuth();
-  const { get, post, delete: deleteExpense, loading } = useApi();
+  const { getAll, post, delete: deleteExpense, loading } = useApi();
   const [expenses, setExpenses] = useState([]);
   const [trips, setTrips] = useState([]);
   const [showModal, setShowModal] = useState(false);
@@ -37,19 +37,19 @@ const Expenses = () => {
   }, [user]);
 
   const fetchTrips = async () => {
-    const { data } = await get('/trips');
+    const { data } = await getAll('/trips');
     if (data) {
       setTrips(data);
     }
   };
 
   const fetchAllExpenses = async () => {
-    const { data: tripsData } = await get('/trips');
+    const { data: tripsData } = await getAll('/trips');
     if (!tripsData) return;
 
     let allExpenses = [];
     for (const trip of tripsData) {
-      const { data } = await get(`/expenses/trip/${trip.id}`);
+      const { data } = await getAll(`/expenses/trip/${trip.id}`);
       if (data) {
         allExpenses = [...allExpenses, ...data.map(e => ({ ...e, tripTitle: trip.title }))];
       }
@@ -63,7 +63,7 @@ const Expenses = () => {
       return;
     }
     
-    const { data } = await get(`/expenses/trip/${tripId}`);
+    const { data } = await getAll(`/expenses/trip/${tripId}`);
     if (data) {
       const trip = trips.find(t => t.id === parseInt(tripId));
       setExpenses(data.map(e => ({ ...e, tripTitle: trip?.title })));
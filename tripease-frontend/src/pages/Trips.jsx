@@ -6,7 +6,7 @@ import { useApi } from '../hooks/useApi';
 
 const Trips = () => {
   const { user } = useAuth();
-  const { get, post, put, delete: deleteTrip, loading } = useApi();
+  const { getAll, post, put, delete: deleteTrip, loading } = useApi();
   const [trips, setTrips] = useState([]);
   const [showModal, setShowModal] = useState(false);
   const [editingTrip, setEditingTrip] = useState(null);
@@ -28,7 +28,7 @@ const Trips = () => {
 
   const fetchTrips = async () => {
     console.log('Fetching trips...');
-    const { data, error } = await get('/trips');
+    const { data, error } = await getAll('/trips');
     if (data) {
       console.log('Trips fetched:', data);
       setTrips(data);
@@ -85,7 +85,8 @@ const Trips = () => {
 
     if (editingTrip) {
       // Update trip
-      const { data, error } = await put(`/trips/${editingTrip.id}`, tripData, {
+      // The version this edit is based on; the server refuses it with 409 if the trip changed since
+      const { data, error } = await put(`/trips/${editingTrip.id}`, { ...tripData, version: editingTrip.version }, {
         showSuccessToast: true,
         successMessage: 'Trip updated successfully!'
       });
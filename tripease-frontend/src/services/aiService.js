@@ -1,4 +1,5 @@
 import axiosInstance from '../api/axiosInstance';
+import { API_BASE_URL } from '../utils/constants';
 
 class AIService {
     // Generate travel recommendation using backend Gemini integration
@@ -16,14 +17,68 @@ class AIService {
         }
     }
 
-    // Get all user recommendations
-    async getUserRecommendations() {
-        try {
-            const response = await axiosInstance.get('/ai/recommendations');
-            return response.data;
-        } catch (error) {
-            console.error('Error fetching recommendations:', error);
-            throw error;
+    // Stream a recommendation over SSE; onChunk receives text as it is generated
+    async streamRecommendation(destination, budgetRange, preferences, onChunk) {
+        let recommendation = null;
+        await this.readEventStream('/ai/recommendation/stream', { destination, budgetRange, preferences }, (event, payload) => {
+            if (event === 'chunk') onChunk(payload);
+            else if (event === 'done') recommendation = JSON.parse(payload);
+            else if (event === 'error') throw new Error(payload);
+        });
+        return recommendation;
+    }
+
+    // Plan several destinations in one request; onResult(index, recommendation) fires as each one is ready
+    async generateBatch(requests, onResult) {
+        let recommendations = [];
+        await this.readEventStream('/ai/recommendation/batch', { requests }, (event, payload, id) => {
+            if (event === 'result') onResult(Number(id), JSON.parse(payload));
+            else if (event === 'done') recommendations = JSON.parse(payload);
+        });
+        return recommendations;
+    }
+
+    // POST body to path and hand each server-sent event to onEvent(event, data, id)
+    async readEventStream(path, body, onEvent) {
+        const token = (localStorage.getItem('token') || '').replace(/"/g, '');
+        const response = await fetch(`${API_BASE_URL}${path}`, {
+            method: 'POST',
+            headers: {
+                'Content-Type': 'application/json',
+                Accept: 'text/event-stream',
+                Authorization: `Bearer ${token}`
+            },
+            body: JSON.stringify(body)
+        });
+        if (!response.ok) {
+            throw new Error(`Request to ${path} failed with status ${response.status}`);
+        }
+
+        const reader = response.body.getReader();
+        const decoder = new TextDecoder();
+        let buffer = '';
+
+        while (true) {
+            const { value, done } = await reader.read();
+            if (done) break;
+            buffer += decoder.decode(value, { stream: true });
+
+            let boundary;
+            while ((boundary = buffer.indexOf('\n\n')) !== -1) {
+                const rawEvent = buffer.slice(0, boundary);
+                buffer = buffer.slice(boundary + 2);
+
+                let event = 'message';
+                let id = null;
+                const data = [];
+                rawEvent.split('\n').forEach((line) => {
+                    if (line.startsWith('event:')) event = line.slice(6).trim();
+                    else if (line.startsWith('id:')) id = line.slice(3).trim();
+                    else if (line.startsWith('data:')) data.push(line.slice(5).replace(/^ /, ''));
+                });
+
+                onEvent(event, data.join('\n'), id);
+            }
         }
     }
 